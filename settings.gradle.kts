@@ -18,6 +18,7 @@ include("viafabric-mc1201")
 include("viafabric-mc1204")
 include("viafabric-mc1206")
 include("viafabric-mc121")
+include("viafabric-benchmark")
 
 plugins {
     id("org.gradle.toolchains.foojay-resolver-convention") version "0.8.0"
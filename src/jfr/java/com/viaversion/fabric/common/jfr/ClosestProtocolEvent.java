@@ -0,0 +1,38 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.jfr;
+
+import jdk.jfr.*;
+
+@Name("viafabric.ClosestServerProtocol")
+@Label("Closest Server Protocol")
+@Category({"ViaFabric", "Protocol"})
+@Description("The server version chosen for a client-side connection")
+@StackTrace(false)
+public final class ClosestProtocolEvent extends Event {
+    @Label("Address")
+    String address;
+    @Label("Client Version")
+    String clientVersion;
+    @Label("Server Version")
+    String serverVersion;
+    @Label("Blocked")
+    boolean blocked;
+    @Label("Supported")
+    boolean supported;
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.jfr;
+
+import com.viaversion.fabric.common.handler.CommonTransformer;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import io.netty.buffer.ByteBuf;
+import jdk.jfr.EventType;
+
+import java.net.SocketAddress;
+
+/**
+ * Loaded reflectively by {@link FlightRecorderEvents} when jdk.jfr is available.
+ */
+public class JfrEvents extends FlightRecorderEvents {
+    private final EventType transformType = EventType.getEventType(PacketTransformEvent.class);
+    private final EventType cancelType = EventType.getEventType(CodecCancelEvent.class);
+    private final EventType reorderType = EventType.getEventType(PipelineReorderRecordEvent.class);
+    private final EventType detectType = EventType.getEventType(ProtocolDetectEvent.class);
+    private final EventType closestType = EventType.getEventType(ClosestProtocolEvent.class);
+
+    @Override
+    public Object beginTransform(UserConnection user, boolean incoming, ByteBuf buf) {
+        ProtocolInfo info = user.getProtocolInfo();
+        if (!transformType.isEnabled() || info == null) return null;
+        Direction direction = direction(user, incoming);
+        PacketTransformEvent event = new PacketTransformEvent();
+        event.direction = direction.name();
+        event.state = (direction == Direction.SERVERBOUND ? info.getServerState() : info.getClientState()).name();
+        event.packetId = CommonTransformer.peekPacketId(buf);
+        event.sizeIn = buf.readableBytes();
+        event.clientVersion = info.protocolVersion().getName();
+        event.serverVersion = info.serverProtocolVersion().getName();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitTransform(Object event, ByteBuf transformed) {
+        PacketTransformEvent transformEvent = (PacketTransformEvent) event;
+        transformEvent.end();
+        transformEvent.sizeOut = transformed.readableBytes();
+        transformEvent.commit();
+    }
+
+    @Override
+    public boolean isCancelEnabled() {
+        return cancelType.isEnabled();
+    }
+
+    @Override
+    public void cancel(UserConnection user, boolean incoming, int packetId, int size) {
+        ProtocolInfo info = user.getProtocolInfo();
+        if (info == null) return;
+        Direction direction = direction(user, incoming);
+        CodecCancelEvent event = new CodecCancelEvent();
+        event.direction = direction.name();
+        event.state = (direction == Direction.SERVERBOUND ? info.getServerState() : info.getClientState()).name();
+        event.packetId = packetId;
+        event.size = size;
+        event.clientVersion = info.protocolVersion().getName();
+        event.serverVersion = info.serverProtocolVersion().getName();
+        event.commit();
+    }
+
+    @Override
+    public Object beginReorder(String trigger) {
+        if (!reorderType.isEnabled()) return null;
+        PipelineReorderRecordEvent event = new PipelineReorderRecordEvent();
+        event.trigger = trigger;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitReorder(Object event, boolean reordered) {
+        PipelineReorderRecordEvent reorderEvent = (PipelineReorderRecordEvent) event;
+        reorderEvent.end();
+        reorderEvent.reordered = reordered;
+        reorderEvent.commit();
+    }
+
+    @Override
+    public Object beginDetect(SocketAddress address) {
+        if (!detectType.isEnabled()) return null;
+        ProtocolDetectEvent event = new ProtocolDetectEvent();
+        event.address = String.valueOf(address);
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitDetect(Object event, ProtocolVersion version, Throwable error) {
+        ProtocolDetectEvent detectEvent = (ProtocolDetectEvent) event;
+        detectEvent.end();
+        detectEvent.detectedVersion = version != null ? version.getName() : null;
+        detectEvent.error = error != null ? error.toString() : null;
+        detectEvent.commit();
+    }
+
+    @Override
+    public Object beginClosestProtocol(SocketAddress address, ProtocolVersion clientVersion) {
+        if (!closestType.isEnabled()) return null;
+        ClosestProtocolEvent event = new ClosestProtocolEvent();
+        event.address = String.valueOf(address);
+        event.clientVersion = clientVersion.getName();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitClosestProtocol(Object event, ProtocolVersion serverVersion, boolean blocked, boolean supported) {
+        ClosestProtocolEvent closestEvent = (ClosestProtocolEvent) event;
+        closestEvent.end();
+        closestEvent.serverVersion = serverVersion.getName();
+        closestEvent.blocked = blocked;
+        closestEvent.supported = supported;
+        closestEvent.commit();
+    }
+
+    private static Direction direction(UserConnection user, boolean incoming) {
+        return incoming == user.isClientSide() ? Direction.CLIENTBOUND : Direction.SERVERBOUND;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.jfr;
+
+import jdk.jfr.*;
+
+@Name("viafabric.PacketTransform")
+@Label("Packet Transform")
+@Category({"ViaFabric", "Network"})
+@Description("A packet translated by the ViaFabric codec handlers")
+@StackTrace(false)
+public final class PacketTransformEvent extends Event {
+    @Label("Direction")
+    String direction;
+    @Label("State")
+    String state;
+    @Label("Packet Id")
+    int packetId;
+    @Label("Size In")
+    @DataAmount
+    int sizeIn;
+    @Label("Size Out")
+    @DataAmount
+    int sizeOut;
+    @Label("Client Version")
+    String clientVersion;
+    @Label("Server Version")
+    String serverVersion;
+}
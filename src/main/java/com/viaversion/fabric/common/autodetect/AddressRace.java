@@ -0,0 +1,177 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Pings every address a host name resolves to, like happy eyeballs (RFC 8305) does for connections, and completes
+ * with the first version a server answers with. The address the game resolved is pinged first, the others follow
+ * alternating between IPv6 and IPv4, each {@link #ATTEMPT_DELAY_MILLIS} after the previous one or as soon as it failed.
+ * <p>
+ * Server addresses are already resolved from SRV records by the game, so only its A and AAAA records are raced.
+ */
+public class AddressRace {
+    public static final long ATTEMPT_DELAY_MILLIS = 250;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ViaFabric-AddressRace").build());
+    private final CompletableFuture<ProtocolVersion> result = new CompletableFuture<>();
+    private final List<CompletableFuture<ProtocolVersion>> attempts = new ArrayList<>();
+    private final Deque<InetSocketAddress> remaining = new ArrayDeque<>();
+    private final Function<InetSocketAddress, CompletableFuture<ProtocolVersion>> ping;
+    private ScheduledFuture<?> timer;
+    private boolean resolving = true;
+    private int running;
+    private Throwable lastError;
+
+    private AddressRace(Function<InetSocketAddress, CompletableFuture<ProtocolVersion>> ping) {
+        this.ping = ping;
+    }
+
+    /**
+     * @param ping pings one address, the future is cancelled if another address answered first
+     */
+    public static CompletableFuture<ProtocolVersion> race(InetSocketAddress address,
+                                                          Function<InetSocketAddress, CompletableFuture<ProtocolVersion>> ping) {
+        AddressRace race = new AddressRace(ping);
+        race.attempt(address);
+        if (address.getAddress() == null || isLiteral(address)) {
+            race.resolved(new ArrayList<>());
+        } else {
+            // Might block on DNS, which the calling thread shouldn't
+            SCHEDULER.execute(() -> race.resolved(resolve(address)));
+        }
+        return race.result;
+    }
+
+    private static boolean isLiteral(InetSocketAddress address) {
+        return address.getHostString().equals(address.getAddress().getHostAddress());
+    }
+
+    private static List<InetSocketAddress> resolve(InetSocketAddress address) {
+        List<InetAddress> v6 = new ArrayList<>();
+        List<InetAddress> v4 = new ArrayList<>();
+        try {
+            for (InetAddress resolved : InetAddress.getAllByName(address.getHostString())) {
+                if (resolved.equals(address.getAddress())) continue;
+                (resolved instanceof Inet6Address ? v6 : v4).add(resolved);
+            }
+        } catch (UnknownHostException ignored) {
+            // The address the game resolved is still pinged
+        }
+
+        // Alternate families, starting with the one the game didn't pick
+        boolean sixFirst = !(address.getAddress() instanceof Inet6Address);
+        List<InetSocketAddress> ordered = new ArrayList<>();
+        for (int i = 0; i < Math.max(v6.size(), v4.size()); i++) {
+            List<InetAddress> first = sixFirst ? v6 : v4;
+            List<InetAddress> second = sixFirst ? v4 : v6;
+            if (i < first.size()) ordered.add(withHost(address, first.get(i)));
+            if (i < second.size()) ordered.add(withHost(address, second.get(i)));
+        }
+        return ordered;
+    }
+
+    private static InetSocketAddress withHost(InetSocketAddress address, InetAddress resolved) {
+        try {
+            // Keeps the host name, which is sent in the handshake
+            return new InetSocketAddress(InetAddress.getByAddress(address.getHostString(), resolved.getAddress()),
+                    address.getPort());
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e); // Only thrown for invalid lengths
+        }
+    }
+
+    private synchronized void resolved(List<InetSocketAddress> addresses) {
+        resolving = false;
+        remaining.addAll(addresses);
+        if (result.isDone()) return;
+        if (running == 0) {
+            next();
+        } else {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void nextAfterDelay() {
+        if (!result.isDone()) next();
+    }
+
+    private void next() {
+        InetSocketAddress address = remaining.poll();
+        if (address == null) {
+            if (running == 0 && !resolving) {
+                result.completeExceptionally(lastError != null ? lastError : new IllegalStateException("No address answered"));
+            }
+            return;
+        }
+        attempt(address);
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        if (timer != null) timer.cancel(false);
+        timer = remaining.isEmpty() ? null
+                : SCHEDULER.schedule(this::nextAfterDelay, ATTEMPT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void attempt(InetSocketAddress address) {
+        running++;
+        CompletableFuture<ProtocolVersion> attempt;
+        try {
+            attempt = ping.apply(address);
+        } catch (Throwable t) {
+            attempt = new CompletableFuture<>();
+            attempt.completeExceptionally(t);
+        }
+        attempts.add(attempt);
+        attempt.whenComplete((version, error) -> finished(version, error));
+    }
+
+    private synchronized void finished(ProtocolVersion version, Throwable error) {
+        running--;
+        if (result.isDone()) return;
+        if (version != null) {
+            if (timer != null) timer.cancel(false);
+            result.complete(version);
+            for (CompletableFuture<ProtocolVersion> attempt : attempts) {
+                attempt.cancel(false);
+            }
+            return;
+        }
+        if (error != null) lastError = error;
+        // Don't wait for the delay when an attempt failed
+        next();
+    }
+}
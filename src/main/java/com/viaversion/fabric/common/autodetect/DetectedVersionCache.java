@@ -0,0 +1,229 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import com.viaversion.viaversion.api.protocol.version.VersionType;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers auto-detected server versions across restarts in a file in the ViaFabric config folder.
+ * <p>
+ * A remembered version is used right away, and if it's older than {@link #FRESH_MILLIS} it's detected again in the
+ * background for the next connection (stale-while-revalidate). The file is replaced atomically and rewritten under a
+ * file lock after merging the entries of other game instances, so they can share it. Before a server without a usable
+ * entry is detected, the file is read again if another instance wrote it since.
+ */
+public class DetectedVersionCache {
+    public static final long FRESH_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long EXPIRE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final int MAGIC = 0x56464456; // VFDV
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "detected-versions.bin";
+    private static DetectedVersionCache instance;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("ViaFabric-DetectedVersions").build());
+    private final Path path;
+    private final Path lockPath;
+    private final Logger logger;
+    // Modification time of the file when it was last read or written by this instance
+    private volatile FileTime knownModified;
+
+    private DetectedVersionCache(Path path, Logger logger) {
+        this.path = path;
+        this.lockPath = path.resolveSibling(FILE_NAME + ".lock");
+        this.logger = logger;
+        reloadIfModified();
+    }
+
+    public static synchronized DetectedVersionCache get(Logger logger) {
+        if (instance == null) {
+            Path folder = FabricLoader.getInstance().getConfigDir().resolve("ViaFabric");
+            instance = new DetectedVersionCache(folder.resolve(FILE_NAME), logger);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the remembered version of the server, or detects it if there's none.
+     *
+     * @param detector detects the version of the server, completing with null if it couldn't
+     */
+    public CompletableFuture<ProtocolVersion> detect(InetSocketAddress address,
+                                                     Function<InetSocketAddress, CompletableFuture<ProtocolVersion>> detector) {
+        String key = key(address);
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (!isUsable(entry, now) && reloadIfModified()) {
+            entry = entries.get(key);
+        }
+        if (isUsable(entry, now)) {
+            if (now - entry.detectedAt >= FRESH_MILLIS && revalidating.add(key)) {
+                detector.apply(address).whenComplete((version, error) -> {
+                    revalidating.remove(key);
+                    if (version != null) put(address, version);
+                });
+            }
+            return CompletableFuture.completedFuture(ProtocolVersion.getProtocol(entry.version));
+        }
+        CompletableFuture<ProtocolVersion> future = detector.apply(address);
+        future.thenAccept(version -> {
+            if (version != null) put(address, version);
+        });
+        return future;
+    }
+
+    /**
+     * Remembers the version of a server, e.g. from a status response received elsewhere.
+     */
+    public void put(InetSocketAddress address, ProtocolVersion version) {
+        // Only the protocol id is saved, which doesn't tell legacy versions apart
+        if (!version.isKnown() || version.getVersionType() != VersionType.RELEASE) return;
+        entries.put(key(address), new Entry(version.getVersion(), System.currentTimeMillis()));
+        if (saveScheduled.compareAndSet(false, true)) {
+            // Detections often come in bursts, e.g. from the server list
+            executor.schedule(this::save, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static boolean isUsable(Entry entry, long now) {
+        return entry != null && now - entry.detectedAt < EXPIRE_MILLIS;
+    }
+
+    /**
+     * Merges the entries of the file if it was modified since this instance last read or wrote it.
+     *
+     * @return whether the file was read
+     */
+    private synchronized boolean reloadIfModified() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(knownModified)) return false;
+            knownModified = modified;
+            merge(read(path));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Couldn't read detected versions from " + path, e);
+            return false;
+        }
+    }
+
+    private void merge(Map<String, Entry> other) {
+        for (Map.Entry<String, Entry> entry : other.entrySet()) {
+            entries.merge(entry.getKey(), entry.getValue(),
+                    (ours, theirs) -> ours.detectedAt >= theirs.detectedAt ? ours : theirs);
+        }
+    }
+
+    static String key(InetSocketAddress address) {
+        return address.getHostString().toLowerCase() + ":" + address.getPort();
+    }
+
+    private void save() {
+        saveScheduled.set(false);
+        try {
+            Files.createDirectories(path.getParent());
+            try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                // Another instance might have written since this one read the file
+                merge(read(path));
+                Path tmp = path.resolveSibling(FILE_NAME + ".tmp");
+                Files.write(tmp, serialize());
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                knownModified = Files.getLastModifiedTime(path);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Couldn't save detected versions to " + path, e);
+        }
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> now - entry.detectedAt >= EXPIRE_MILLIS);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().version);
+            out.writeLong(entry.getValue().detectedAt);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, Entry> read(Path path) throws IOException {
+        Map<String, Entry> read = new ConcurrentHashMap<>();
+        try (InputStream stream = Files.newInputStream(path)) {
+            DataInputStream in = new DataInputStream(stream);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return read;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                read.put(key, new Entry(in.readInt(), in.readLong()));
+            }
+        } catch (NoSuchFileException | EOFException ignored) {
+            // Not written yet, or written by an older format
+        }
+        return read;
+    }
+
+    private static final class Entry {
+        private final int version;
+        private final long detectedAt;
+
+        private Entry(int version, long detectedAt) {
+            this.version = version;
+            this.detectedAt = detectedAt;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import com.viaversion.viaversion.api.Via;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.TimeoutException;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops auto-detecting servers whose detection failed for a while, so offline or firewalled servers don't delay
+ * connecting each time. The wait depends on how it failed and doubles with each failure in a row, up to
+ * {@link #MAX_BACKOFF_MILLIS}.
+ */
+public class DetectionBackoff {
+    public static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @return true if the server shouldn't be detected yet
+     */
+    public boolean isBackingOff(InetSocketAddress address) {
+        return isBackingOff(address, System.currentTimeMillis());
+    }
+
+    boolean isBackingOff(InetSocketAddress address, long now) {
+        Entry entry = entries.get(DetectedVersionCache.key(address));
+        return entry != null && now < entry.retryAt;
+    }
+
+    public void succeeded(InetSocketAddress address) {
+        entries.remove(DetectedVersionCache.key(address));
+    }
+
+    public void failed(InetSocketAddress address, Throwable error) {
+        Failure failure = Failure.of(error);
+        long backoff = failed(address, failure, System.currentTimeMillis());
+        Via.getPlatform().getLogger().info("Auto-detection for " + address + " failed (" + failure.name().toLowerCase()
+                + "), not retrying for " + TimeUnit.MILLISECONDS.toSeconds(backoff) + "s");
+    }
+
+    /**
+     * @return milliseconds until the server is detected again
+     */
+    long failed(InetSocketAddress address, Failure failure, long now) {
+        Entry entry = entries.compute(DetectedVersionCache.key(address), (key, previous) -> {
+            int failures = previous == null ? 1 : previous.failures + 1;
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, failure.baseMillis << Math.min(failures - 1, 16));
+            return new Entry(failures, now + backoff);
+        });
+        return entry.retryAt - now;
+    }
+
+    public enum Failure {
+        REFUSED(TimeUnit.SECONDS.toMillis(5)),
+        TIMEOUT(TimeUnit.SECONDS.toMillis(15)),
+        // Likely not a Minecraft server, so it's unlikely to change soon
+        BAD_RESPONSE(TimeUnit.MINUTES.toMillis(1));
+
+        private final long baseMillis;
+
+        Failure(long baseMillis) {
+            this.baseMillis = baseMillis;
+        }
+
+        public static Failure of(Throwable error) {
+            while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+                error = error.getCause();
+            }
+            // Connect timeouts are connect exceptions too
+            if (error instanceof ConnectTimeoutException || error instanceof TimeoutException
+                    || error instanceof SocketTimeoutException) {
+                return TIMEOUT;
+            }
+            if (error instanceof ConnectException || error instanceof NoRouteToHostException) return REFUSED;
+            return BAD_RESPONSE;
+        }
+    }
+
+    private static final class Entry {
+        private final int failures;
+        private final long retryAt;
+
+        private Entry(int failures, long retryAt) {
+            this.failures = failures;
+            this.retryAt = retryAt;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.viaversion.fabric.common.AddressParser;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+public class ProtocolAutoDetector {
+    private static final DetectionBackoff BACKOFF = new DetectionBackoff();
+    private static final RttTracker RTT = new RttTracker();
+    private static final LoadingCache<InetSocketAddress, CompletableFuture<ProtocolVersion>> SERVER_VER = CacheBuilder.newBuilder()
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .build(CacheLoader.from((address) -> {
+                CompletableFuture<ProtocolVersion> future = AddressRace.race(address, it -> StatusPing.ping(it, RTT));
+                future.whenComplete((version, error) -> {
+                    if (error == null) {
+                        BACKOFF.succeeded(address);
+                        return;
+                    }
+                    BACKOFF.failed(address, error);
+                    // The backoff decides when to retry instead
+                    ProtocolAutoDetector.SERVER_VER.asMap().remove(address, future);
+                });
+                return future;
+            }));
+
+    /**
+     * @return completes with null if the version couldn't be detected, right away if the last detections failed
+     */
+    public static CompletableFuture<ProtocolVersion> detectVersion(InetSocketAddress address) {
+        try {
+            return DetectedVersionCache.get(Via.getPlatform().getLogger()).detect(serverAddress(address), ProtocolAutoDetector::detect);
+        } catch (UnknownHostException e) {
+            Via.getPlatform().getLogger().log(Level.WARNING, "Protocol auto detector error: ", e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private static CompletableFuture<ProtocolVersion> detect(InetSocketAddress address) {
+        // Connecting falls back to the version of the client, like when detection fails
+        if (BACKOFF.isBackingOff(address)) return CompletableFuture.completedFuture(null);
+        return SERVER_VER.getUnchecked(address);
+    }
+
+    /**
+     * @return how long detecting the version of the server may take, from how long it took before
+     */
+    public static long detectionTimeoutMillis(InetSocketAddress address) {
+        try {
+            return RTT.timeoutMillis(serverAddress(address));
+        } catch (UnknownHostException e) {
+            return RttTracker.CEILING_MILLIS;
+        }
+    }
+
+    /**
+     * Remembers the version of a server learned without translating, e.g. from the server list ping.
+     */
+    public static void rememberVersion(InetSocketAddress address, ProtocolVersion version) {
+        try {
+            DetectedVersionCache.get(Via.getPlatform().getLogger()).put(serverAddress(address), version);
+        } catch (UnknownHostException e) {
+            Via.getPlatform().getLogger().log(Level.WARNING, "Protocol auto detector error: ", e);
+        }
+    }
+
+    private static InetSocketAddress serverAddress(InetSocketAddress address) throws UnknownHostException {
+        return new InetSocketAddress(InetAddress.getByAddress
+                (new AddressParser().parse(address.getHostString()).serverAddress,
+                        address.getAddress().getAddress()), address.getPort());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps how long the last status pings of each server took, from connecting until the response, and derives how long
+ * the next one may take from them: the 99th percentile doubled plus {@link #MARGIN_MILLIS}, clamped between
+ * {@link #FLOOR_MILLIS} and {@link #CEILING_MILLIS}. Servers without pings get the ceiling.
+ */
+public class RttTracker {
+    public static final long FLOOR_MILLIS = 250;
+    public static final long CEILING_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    public static final long MARGIN_MILLIS = 100;
+    private static final int SAMPLES = 16;
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+    public void record(InetSocketAddress address, long nanos) {
+        samples.computeIfAbsent(DetectedVersionCache.key(address), key -> new Samples()).add(nanos);
+    }
+
+    public long timeoutMillis(InetSocketAddress address) {
+        Samples samples = this.samples.get(DetectedVersionCache.key(address));
+        if (samples == null) return CEILING_MILLIS;
+        long p99 = TimeUnit.NANOSECONDS.toMillis(samples.percentile(99));
+        return Math.max(FLOOR_MILLIS, Math.min(CEILING_MILLIS, p99 * 2 + MARGIN_MILLIS));
+    }
+
+    private static final class Samples {
+        private final long[] nanos = new long[SAMPLES];
+        private int count;
+        private int next;
+
+        private synchronized void add(long sample) {
+            nanos[next] = sample;
+            next = (next + 1) % nanos.length;
+            count = Math.min(count + 1, nanos.length);
+        }
+
+        private synchronized long percentile(double percentile) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(sorted.length * percentile / 100) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+}
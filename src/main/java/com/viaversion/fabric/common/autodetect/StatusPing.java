@@ -0,0 +1,429 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.viaversion.fabric.common.jfr.FlightRecorderEvents;
+import com.viaversion.fabric.common.metrics.ViaFabricMetrics;
+import com.viaversion.fabric.common.platform.NativeVersionProvider;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import com.viaversion.viaversion.api.protocol.version.VersionType;
+import com.viaversion.viaversion.api.type.Types;
+import com.viaversion.viaversion.libs.gson.stream.JsonReader;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the version of a server with a status ping, without the packet handling of the game. Only the handshake and
+ * status request are written, and only the version in the status response is parsed. Servers which answer it like
+ * servers before 1.7 do are pinged again with the legacy server list ping.
+ * <p>
+ * Uses epoll like the game does when it's available and native transport isn't turned off, netty's io_uring transport
+ * isn't shipped with the game. Each transport gets its own event loop the first time it's used, which is kept, so
+ * switching the option doesn't affect pings in flight.
+ */
+public class StatusPing {
+    private static final int STATUS_INTENT = 1;
+    private static final int MAX_RESPONSE_SIZE = 1 << 21;
+    private static final int LEGACY_KICK = 0xFF;
+    private static final int LEGACY_PING_PROTOCOL = 78; // 1.6.4
+    private static volatile boolean nativeTransport = true;
+    private static Transport epollTransport;
+    private static Transport nioTransport;
+
+    private StatusPing() {
+    }
+
+    /**
+     * Follows the native transport option of the game, which it passes when connecting.
+     */
+    public static void useNativeTransport(boolean useNativeTransport) {
+        nativeTransport = useNativeTransport;
+    }
+
+    /**
+     * @param rtt gives the time the ping may take, and gets how long it took
+     * @return completes with the version of the server, cancelling it closes the connection
+     */
+    public static CompletableFuture<ProtocolVersion> ping(InetSocketAddress address, RttTracker rtt) {
+        CompletableFuture<ProtocolVersion> future = new CompletableFuture<>();
+        long start = System.nanoTime();
+        long timeoutMillis = rtt.timeoutMillis(address);
+        future.thenRun(() -> rtt.record(address, System.nanoTime() - start));
+        Object event = FlightRecorderEvents.get().beginDetect(address);
+        if (event != null) {
+            future.whenComplete((version, error) -> FlightRecorderEvents.get().commitDetect(event, version, error));
+        }
+        ViaFabricMetrics metrics = ViaFabricMetrics.get();
+        if (metrics != null) {
+            future.whenComplete((version, error) -> metrics.detectPing(error == null));
+        }
+
+        try {
+            Transport transport = transport();
+            ScheduledFuture<?> timeout = transport.group.schedule(() -> {
+                if (future.completeExceptionally(new SocketTimeoutException("No status response after " + timeoutMillis + "ms"))) {
+                    // Counts as a slow ping, so a server which got slower gets more time next time
+                    rtt.record(address, TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((version, error) -> timeout.cancel(false));
+            connect(transport, address, timeoutMillis, future, new StatusHandler(address, future,
+                    () -> connect(transport, address, timeoutMillis, future, new LegacyStatusHandler(address, future))));
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+        return future;
+    }
+
+    private static void connect(Transport transport, InetSocketAddress address, long timeoutMillis,
+                                CompletableFuture<ProtocolVersion> future, ChannelHandler handler) {
+        if (future.isDone()) return;
+        Channel channel = new Bootstrap()
+                .group(transport.group)
+                .channel(transport.channelClass)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeoutMillis)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        try {
+                            channel.config().setOption(ChannelOption.TCP_NODELAY, true);
+                            channel.config().setOption(ChannelOption.IP_TOS, 0x18); // Stolen from Velocity, low delay, high reliability
+                        } catch (ChannelException ignored) {
+                        }
+                        channel.pipeline().addLast("status", handler);
+                    }
+                })
+                .connect(address)
+                .addListener(connected -> {
+                    if (!connected.isSuccess()) future.completeExceptionally(connected.cause());
+                })
+                .channel();
+        // Closes the connection if another address of the server answered first too
+        future.whenComplete((version, error) -> channel.close());
+    }
+
+    private static synchronized Transport transport() {
+        if (nativeTransport && epollAvailable()) {
+            if (epollTransport == null) {
+                epollTransport = new Transport(new EpollEventLoopGroup(1, threads("ViaFabric-StatusPing-Epoll")),
+                        EpollSocketChannel.class);
+            }
+            return epollTransport;
+        }
+        if (nioTransport == null) {
+            nioTransport = new Transport(new NioEventLoopGroup(1, threads("ViaFabric-StatusPing")), NioSocketChannel.class);
+        }
+        return nioTransport;
+    }
+
+    private static ThreadFactory threads(String name) {
+        return new ThreadFactoryBuilder().setDaemon(true).setNameFormat(name).build();
+    }
+
+    private static boolean epollAvailable() {
+        try {
+            return Epoll.isAvailable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    private static void writeVarInt(ByteBuf buf, int value) {
+        Types.VAR_INT.writePrimitive(buf, value);
+    }
+
+    private static final class Transport {
+        private final EventLoopGroup group;
+        private final Class<? extends Channel> channelClass;
+
+        private Transport(EventLoopGroup group, Class<? extends Channel> channelClass) {
+            this.group = group;
+            this.channelClass = channelClass;
+        }
+    }
+
+    private static final class StatusHandler extends ByteToMessageDecoder {
+        private final InetSocketAddress address;
+        private final CompletableFuture<ProtocolVersion> future;
+        private final Runnable legacyPing;
+        private boolean readAny;
+        private boolean fellBack;
+
+        private StatusHandler(InetSocketAddress address, CompletableFuture<ProtocolVersion> future, Runnable legacyPing) {
+            this.address = address;
+            this.future = future;
+            this.legacyPing = legacyPing;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            byte[] host = address.getHostString().getBytes(StandardCharsets.UTF_8);
+            ByteBuf handshake = ctx.alloc().buffer(host.length + 16);
+            writeVarInt(handshake, 0x00); // Handshake
+            writeVarInt(handshake, Via.getManager().getProviders().get(NativeVersionProvider.class).getNativeServerVersion());
+            writeVarInt(handshake, host.length);
+            handshake.writeBytes(host);
+            handshake.writeShort(address.getPort());
+            writeVarInt(handshake, STATUS_INTENT);
+
+            ByteBuf out = ctx.alloc().buffer(handshake.readableBytes() + 5);
+            writeVarInt(out, handshake.readableBytes());
+            out.writeBytes(handshake);
+            handshake.release();
+            writeVarInt(out, 1);
+            writeVarInt(out, 0x00); // Status request
+            ctx.writeAndFlush(out);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+            readAny = true;
+            if (fellBack) {
+                in.skipBytes(in.readableBytes());
+                return;
+            }
+            // Servers before 1.7 kick for the handshake, which no modern response starts like, as var ints are minimal
+            if (in.readableBytes() >= 2 && in.getUnsignedByte(in.readerIndex()) == LEGACY_KICK
+                    && in.getUnsignedByte(in.readerIndex() + 1) == 0x00) {
+                fallBack(ctx);
+                return;
+            }
+            in.markReaderIndex();
+            int length = readVarInt(in);
+            if (length == -1) {
+                in.resetReaderIndex();
+                return;
+            }
+            if (length > MAX_RESPONSE_SIZE) throw new DecoderException("Status response of " + length + " bytes");
+            if (in.readableBytes() < length) {
+                in.resetReaderIndex();
+                return;
+            }
+            ByteBuf packet = in.readSlice(length);
+            if (readVarInt(packet) != 0x00) throw new DecoderException("Expected a status response");
+            readVarInt(packet); // Length of the JSON, which fills the rest of the packet
+
+            int protocol = readProtocol(packet);
+            if (protocol == -1) {
+                future.completeExceptionally(new IllegalArgumentException("Null version in query response"));
+            } else {
+                ProtocolVersion version = ProtocolVersion.getProtocol(protocol);
+                future.complete(version);
+                Via.getPlatform().getLogger().info("Auto-detected " + version + " for " + address);
+            }
+            ctx.close();
+        }
+
+        /**
+         * @return version.protocol of the response, or -1 if there's none
+         */
+        private static int readProtocol(ByteBuf json) throws IOException {
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteBufInputStream(json), StandardCharsets.UTF_8))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("version")) {
+                        reader.skipValue(); // Descriptions and favicons aren't needed
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("protocol")) return reader.nextInt();
+                        reader.skipValue();
+                    }
+                    return -1;
+                }
+                return -1;
+            }
+        }
+
+        /**
+         * @return -1 if the var int isn't complete yet
+         */
+        private static int readVarInt(ByteBuf buf) {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                if (!buf.isReadable()) return -1;
+                byte in = buf.readByte();
+                value |= (in & 0x7F) << shift;
+                if ((in & 0x80) == 0) return value;
+            }
+            throw new DecoderException("Var int too big");
+        }
+
+        /**
+         * Pings the server the way clients before 1.7 did, with a new connection.
+         */
+        private void fallBack(ChannelHandlerContext ctx) {
+            if (fellBack) return;
+            fellBack = true;
+            ctx.close();
+            legacyPing.run();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (!future.isDone() && !fellBack) {
+                if (readAny) {
+                    future.completeExceptionally(new DecoderException("Connection closed during the status response"));
+                } else {
+                    // Servers before 1.7 may also just close the connection
+                    fallBack(ctx);
+                }
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            // Only the legacy kick and closing without an answer are taken for servers before 1.7, anything else
+            // is a bad response
+            if (!fellBack) future.completeExceptionally(cause);
+            ctx.close();
+        }
+    }
+
+    /**
+     * Reads the version of servers before 1.7 from the kick they answer the 1.6 server list ping with, which 1.4 and
+     * 1.5 answer too. Versions before 1.4 don't include their protocol, and the legacy versions are only known when a
+     * platform like ViaLegacy registered them.
+     */
+    private static final class LegacyStatusHandler extends ChannelInboundHandlerAdapter {
+        private static final String PING_CHANNEL = "MC|PingHost";
+        private final InetSocketAddress address;
+        private final CompletableFuture<ProtocolVersion> future;
+        private ByteBuf response;
+
+        private LegacyStatusHandler(InetSocketAddress address, CompletableFuture<ProtocolVersion> future) {
+            this.address = address;
+            this.future = future;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            String host = address.getHostString();
+            ByteBuf ping = ctx.alloc().buffer(32 + (PING_CHANNEL.length() + host.length()) * 2);
+            ping.writeByte(0xFE); // Server list ping
+            ping.writeByte(0x01);
+            ping.writeByte(0xFA); // Plugin message
+            writeLegacyString(ping, PING_CHANNEL);
+            ping.writeShort(7 + host.length() * 2);
+            ping.writeByte(LEGACY_PING_PROTOCOL);
+            writeLegacyString(ping, host);
+            ping.writeInt(address.getPort());
+            ctx.writeAndFlush(ping);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            try {
+                if (future.isDone()) return;
+                if (response == null) response = ctx.alloc().buffer();
+                response.writeBytes(buf);
+            } finally {
+                buf.release();
+            }
+            if (future.isDone() || response.readableBytes() < 3) return;
+            if (response.getUnsignedByte(0) != LEGACY_KICK) {
+                fail(ctx, "Expected a legacy status response");
+                return;
+            }
+            int length = response.getUnsignedShort(1);
+            if (response.readableBytes() < 3 + length * 2) return;
+
+            // §1, protocol, version name, motd, players and max players
+            String[] fields = response.toString(3, length * 2, StandardCharsets.UTF_16BE).split("\0");
+            if (fields.length < 2 || !fields[0].equals("\u00a71")) {
+                fail(ctx, "Legacy status response without a version");
+                return;
+            }
+            int protocol;
+            try {
+                protocol = Integer.parseInt(fields[1]);
+            } catch (NumberFormatException e) {
+                fail(ctx, "Legacy status response with version " + fields[1]);
+                return;
+            }
+            ProtocolVersion version = ProtocolVersion.getProtocol(VersionType.RELEASE_INITIAL, protocol);
+            if (!version.isKnown()) {
+                fail(ctx, "Server before 1.7 with protocol " + protocol + ", which no installed platform supports");
+                return;
+            }
+            future.complete(version);
+            Via.getPlatform().getLogger().info("Auto-detected " + version + " for " + address);
+            ctx.close();
+        }
+
+        private void fail(ChannelHandlerContext ctx, String message) {
+            future.completeExceptionally(new DecoderException(message));
+            ctx.close();
+        }
+
+        private static void writeLegacyString(ByteBuf buf, String value) {
+            buf.writeShort(value.length());
+            buf.writeCharSequence(value, StandardCharsets.UTF_16BE);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (response != null) {
+                response.release();
+                response = null;
+            }
+            future.completeExceptionally(new IllegalStateException("Connection closed without legacy status response"));
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            future.completeExceptionally(cause);
+            ctx.close();
+        }
+    }
+}
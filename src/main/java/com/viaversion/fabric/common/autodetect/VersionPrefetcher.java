@@ -0,0 +1,108 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.viaversion.viaversion.api.Via;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Auto-detects the versions of the saved servers while the multiplayer screen is open, so joining one of them doesn't
+ * wait for a detection. At most {@link #CONCURRENCY} servers are resolved or detected at once, the results go into
+ * the cache of {@link ProtocolAutoDetector}.
+ */
+public class VersionPrefetcher {
+    public static final int CONCURRENCY = 4;
+    // Only resolving blocks, detections run on the event loop of the status ping
+    private static final ExecutorService RESOLVER = Executors.newFixedThreadPool(CONCURRENCY,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ViaFabric-Prefetch-%d").build());
+    private static VersionPrefetcher current;
+    private final Object screen;
+    private final Queue<String> pending;
+    private final Function<String, InetSocketAddress> resolver;
+    private volatile boolean cancelled;
+
+    private VersionPrefetcher(Object screen, List<String> addresses, Function<String, InetSocketAddress> resolver) {
+        this.screen = screen;
+        this.pending = new ArrayDeque<>(addresses);
+        this.resolver = resolver;
+    }
+
+    /**
+     * Starts detecting the versions of the servers, unless it was already started for the screen, which happens when
+     * the screen is resized.
+     *
+     * @param addresses the addresses as they're saved in the server list
+     * @param resolver  resolves an address like the game does when joining, may block
+     */
+    public static synchronized void start(Object screen, List<String> addresses,
+                                          Function<String, InetSocketAddress> resolver) {
+        if (current != null) {
+            if (current.screen == screen) return;
+            current.cancelled = true;
+        }
+        VersionPrefetcher prefetcher = new VersionPrefetcher(screen, addresses, resolver);
+        current = prefetcher;
+        for (int i = 0; i < CONCURRENCY; i++) {
+            prefetcher.next();
+        }
+    }
+
+    /**
+     * Stops starting detections, must be called when the screen closes. Detections in flight still complete into the
+     * cache.
+     */
+    public static synchronized void stop(Object screen) {
+        if (current == null || current.screen != screen) return;
+        current.cancelled = true;
+        current = null;
+    }
+
+    private void next() {
+        if (cancelled) return;
+        String address;
+        synchronized (pending) {
+            address = pending.poll();
+        }
+        if (address == null) return;
+        RESOLVER.execute(() -> prefetch(address));
+    }
+
+    private void prefetch(String address) {
+        InetSocketAddress resolved = null;
+        try {
+            if (!cancelled) resolved = resolver.apply(address);
+        } catch (Exception e) {
+            Via.getPlatform().getLogger().log(Level.FINE, "Couldn't resolve " + address + " to prefetch its version", e);
+        }
+        if (resolved == null || resolved.isUnresolved() || cancelled) {
+            next();
+            return;
+        }
+        // The next server starts when this one completes, which keeps the detections in flight bounded
+        ProtocolAutoDetector.detectVersion(resolved).whenComplete((version, error) -> next());
+    }
+}
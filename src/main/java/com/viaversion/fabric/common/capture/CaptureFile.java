@@ -0,0 +1,125 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A size-capped ring of captured frames in a memory-mapped file. Once the file is full the oldest frames are
+ * overwritten.
+ * <p>
+ * The header holds the magic, the format version, the file size, the position of the next frame (head), the
+ * position of the oldest frame (tail), the end of the frames before the head wrapped around and whether it did. The
+ * frames are [tail, end) followed by [HEADER_SIZE, head) if it wrapped, otherwise [tail, head).
+ * <p>
+ * Every frame starts with its total length, the timestamp in epoch microseconds, the connection id, the direction,
+ * state and stage ordinals, the flags and the client and server protocol versions, followed by the packet. Version 2
+ * counted 4 more bytes into the frame header, which followed the packet without being written.
+ */
+public class CaptureFile implements Closeable {
+    public static final int MAGIC = 0x56464350; // VFCP
+    public static final int VERSION = 3;
+    public static final int HEADER_SIZE = 64;
+    public static final int FRAME_HEADER_SIZE = 32;
+    public static final byte STAGE_BEFORE = 0;
+    public static final byte STAGE_AFTER = 1;
+    public static final byte FLAG_CLIENT_SIDE = 1;
+    static final int HEAD_OFFSET = 16;
+    static final int TAIL_OFFSET = 24;
+    static final int END_OFFSET = 32;
+    static final int WRAPPED_OFFSET = 40;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int head = HEADER_SIZE;
+    private int tail = HEADER_SIZE;
+    private int end = HEADER_SIZE;
+    // Whether older frames follow the head
+    private boolean wrapped;
+
+    public CaptureFile(Path path, int capacity) throws IOException {
+        this.capacity = capacity;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, capacity);
+        writePositions();
+    }
+
+    /**
+     * @return false if the frame is larger than the whole file
+     */
+    public boolean append(long timestampMicros, long connectionId, byte direction, byte state, byte stage,
+                          byte flags, int clientVersion, int serverVersion, byte[] packet) {
+        int length = FRAME_HEADER_SIZE + packet.length;
+        if (length > capacity - HEADER_SIZE) return false;
+
+        if (head + length > capacity) {
+            // The older frames after the head would be overwritten anyway, the ones before it become the oldest
+            if (wrapped) tail = HEADER_SIZE;
+            end = head;
+            head = HEADER_SIZE;
+            wrapped = true;
+        }
+        // Drop the oldest frames until the new one fits
+        while (wrapped && tail < head + length) {
+            if (tail >= end) {
+                tail = HEADER_SIZE;
+                wrapped = false;
+                break;
+            }
+            tail += buffer.getInt(tail);
+        }
+
+        buffer.position(head);
+        buffer.putInt(length);
+        buffer.putLong(timestampMicros);
+        buffer.putLong(connectionId);
+        buffer.put(direction);
+        buffer.put(state);
+        buffer.put(stage);
+        buffer.put(flags);
+        buffer.putInt(clientVersion);
+        buffer.putInt(serverVersion);
+        buffer.put(packet);
+        head += length;
+        if (!wrapped) end = head;
+        writePositions();
+        return true;
+    }
+
+    private void writePositions() {
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putLong(TAIL_OFFSET, tail);
+        buffer.putLong(END_OFFSET, end);
+        buffer.put(WRAPPED_OFFSET, (byte) (wrapped ? 1 : 0));
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
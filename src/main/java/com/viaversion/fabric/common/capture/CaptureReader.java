@@ -0,0 +1,177 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.capture;
+
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the frames of a {@link CaptureFile} from the oldest to the newest.
+ */
+public class CaptureReader {
+    private CaptureReader() {
+    }
+
+    public static List<Frame> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static List<Frame> read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return read(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    public static List<Frame> read(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < CaptureFile.HEADER_SIZE || buffer.getInt(0) != CaptureFile.MAGIC) {
+            throw new IOException("Not a ViaFabric packet capture");
+        }
+        int version = buffer.getInt(4);
+        if (version != CaptureFile.VERSION && version != 2) {
+            throw new IOException("Unsupported packet capture version " + version);
+        }
+        int head = (int) buffer.getLong(CaptureFile.HEAD_OFFSET);
+        int tail = (int) buffer.getLong(CaptureFile.TAIL_OFFSET);
+        int end = (int) buffer.getLong(CaptureFile.END_OFFSET);
+        boolean wrapped = buffer.get(CaptureFile.WRAPPED_OFFSET) != 0;
+        if (head > buffer.limit() || end > buffer.limit()) {
+            throw new IOException("Truncated packet capture");
+        }
+
+        List<Frame> frames = new ArrayList<>();
+        // Version 2 frames end with 4 unused bytes
+        int padding = version == 2 ? 4 : 0;
+        if (wrapped) {
+            readFrames(buffer, tail, end, padding, frames);
+            readFrames(buffer, CaptureFile.HEADER_SIZE, head, padding, frames);
+        } else {
+            readFrames(buffer, tail, head, padding, frames);
+        }
+        return frames;
+    }
+
+    private static void readFrames(ByteBuffer buffer, int from, int to, int padding, List<Frame> frames)
+            throws IOException {
+        int position = from;
+        while (position < to) {
+            int length = buffer.getInt(position);
+            if (length < CaptureFile.FRAME_HEADER_SIZE + padding || position + length > to) {
+                throw new IOException("Corrupt frame at " + position);
+            }
+            ByteBuffer frame = buffer.duplicate();
+            frame.position(position + 4);
+            long timestampMicros = frame.getLong();
+            long connectionId = frame.getLong();
+            Direction direction = Direction.values()[frame.get()];
+            State state = State.values()[frame.get()];
+            byte stage = frame.get();
+            byte flags = frame.get();
+            int clientVersion = frame.getInt();
+            int serverVersion = frame.getInt();
+            byte[] packet = new byte[length - CaptureFile.FRAME_HEADER_SIZE - padding];
+            frame.get(packet);
+            frames.add(new Frame(timestampMicros, connectionId, direction, state, stage, flags, clientVersion,
+                    serverVersion, packet));
+            position += length;
+        }
+    }
+
+    public static class Frame {
+        private final long timestampMicros;
+        private final long connectionId;
+        private final Direction direction;
+        private final State state;
+        private final byte stage;
+        private final byte flags;
+        private final int clientVersion;
+        private final int serverVersion;
+        private final byte[] packet;
+
+        private Frame(long timestampMicros, long connectionId, Direction direction, State state, byte stage,
+                      byte flags, int clientVersion, int serverVersion, byte[] packet) {
+            this.timestampMicros = timestampMicros;
+            this.connectionId = connectionId;
+            this.direction = direction;
+            this.state = state;
+            this.stage = stage;
+            this.flags = flags;
+            this.clientVersion = clientVersion;
+            this.serverVersion = serverVersion;
+            this.packet = packet;
+        }
+
+        public long timestampMicros() {
+            return timestampMicros;
+        }
+
+        public long connectionId() {
+            return connectionId;
+        }
+
+        public Direction direction() {
+            return direction;
+        }
+
+        public State state() {
+            return state;
+        }
+
+        public boolean isBeforeTransform() {
+            return stage == CaptureFile.STAGE_BEFORE;
+        }
+
+        public boolean isClientSide() {
+            return (flags & CaptureFile.FLAG_CLIENT_SIDE) != 0;
+        }
+
+        /**
+         * @return whether the packet went through the decoder of the captured connection
+         */
+        public boolean isIncoming() {
+            return (direction == Direction.CLIENTBOUND) == isClientSide();
+        }
+
+        public int clientVersion() {
+            return clientVersion;
+        }
+
+        public int serverVersion() {
+            return serverVersion;
+        }
+
+        public byte[] packet() {
+            return packet;
+        }
+    }
+}
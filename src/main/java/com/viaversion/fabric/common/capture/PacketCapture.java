@@ -0,0 +1,270 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.capture;
+
+import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import io.netty.buffer.ByteBuf;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Captures the packets entering and leaving the ViaFabric handlers of selected connections into a {@link CaptureFile}.
+ * The handlers only copy the packet into a bounded queue, a separate thread writes the file. Frames are dropped when
+ * the queue is full.
+ * <p>
+ * Packets which skip ViaVersion, because no protocol handles them or because the broadcast cache already holds them
+ * transformed, are captured like any other, so a replay sees every packet of the connection.
+ */
+public class PacketCapture {
+    // A single mapped buffer can't be larger than 2 GiB
+    public static final int MAX_FILE_SIZE_MB = 2047;
+    private static final int QUEUE_SIZE = 8192;
+    private static volatile PacketCapture session;
+    private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Set<String> targets;
+    private final Path path;
+    private final CaptureFile file;
+    private final Thread writer;
+    private final long baseMillis = System.currentTimeMillis();
+    private final long baseNanos = System.nanoTime();
+    private volatile boolean running = true;
+
+    private PacketCapture(Path path, int capacity, Set<String> targets, Logger logger) throws IOException {
+        this.path = path;
+        this.targets = targets;
+        this.file = new CaptureFile(path, capacity);
+        this.writer = new Thread(() -> write(logger), "ViaFabric-Capture");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static PacketCapture getSession() {
+        return session;
+    }
+
+    public static Path folder() {
+        return FabricLoader.getInstance().getConfigDir().resolve("ViaFabric").resolve("captures");
+    }
+
+    /**
+     * Starts capturing into a new file in the captures folder of the ViaFabric config.
+     *
+     * @param targets addresses or usernames of the connections to capture, empty for all connections
+     * @throws IllegalArgumentException if the configured file size isn't between 1 and {@link #MAX_FILE_SIZE_MB}
+     */
+    public static synchronized PacketCapture start(Collection<String> targets, Logger logger) throws IOException {
+        VFConfig config = VFConfig.getInstance();
+        int sizeMb = config != null ? config.getCaptureFileSizeMb() : 64;
+        if (sizeMb < 1 || sizeMb > MAX_FILE_SIZE_MB) {
+            throw new IllegalArgumentException(VFConfig.CAPTURE_FILE_SIZE_MB + " must be between 1 and "
+                    + MAX_FILE_SIZE_MB + ", is " + sizeMb);
+        }
+        stop();
+        int capacity = sizeMb * 1024 * 1024;
+        Path folder = folder();
+        Files.createDirectories(folder);
+        Path path = folder.resolve(new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + ".vfcap");
+        Set<String> lowerTargets = new HashSet<>();
+        for (String target : targets) {
+            lowerTargets.add(target.toLowerCase());
+        }
+        session = new PacketCapture(path, capacity, lowerTargets, logger);
+        return session;
+    }
+
+    /**
+     * @return the stopped session, or null if there wasn't one
+     */
+    public static synchronized PacketCapture stop() {
+        PacketCapture current = session;
+        if (current == null) return null;
+        session = null;
+        current.running = false;
+        current.writer.interrupt();
+        try {
+            current.writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return current;
+    }
+
+    private void write(Logger logger) {
+        try {
+            while (running || !queue.isEmpty()) {
+                Frame frame;
+                try {
+                    frame = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (!file.append(frame.timestampMicros, frame.connectionId, frame.direction, frame.state, frame.stage,
+                        frame.flags, frame.clientVersion, frame.serverVersion, frame.packet)) {
+                    dropped.increment();
+                }
+            }
+        } finally {
+            try {
+                file.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Couldn't close packet capture " + path, e);
+            }
+        }
+    }
+
+    private boolean matches(UserConnection user) {
+        if (targets.isEmpty()) return true;
+        ProtocolInfo info = user.getProtocolInfo();
+        if (info != null && info.getUsername() != null && targets.contains(info.getUsername().toLowerCase())) {
+            return true;
+        }
+        SocketAddress address = user.getChannel() != null ? user.getChannel().remoteAddress() : null;
+        if (address instanceof InetSocketAddress) {
+            InetSocketAddress inet = (InetSocketAddress) address;
+            return targets.contains(inet.getHostString().toLowerCase())
+                    || (inet.getAddress() != null && targets.contains(inet.getAddress().getHostAddress()));
+        }
+        return false;
+    }
+
+    private void offer(Frame frame) {
+        if (queue.offer(frame)) {
+            frames.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public Set<String> targets() {
+        return targets;
+    }
+
+    public long frames() {
+        return frames.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    private static final class Frame {
+        private final long timestampMicros;
+        private final long connectionId;
+        private final byte direction;
+        private final byte state;
+        private final byte stage;
+        private final byte flags;
+        private final int clientVersion;
+        private final int serverVersion;
+        private final byte[] packet;
+
+        private Frame(long timestampMicros, long connectionId, byte direction, byte state, byte stage, byte flags,
+                      int clientVersion, int serverVersion, byte[] packet) {
+            this.timestampMicros = timestampMicros;
+            this.connectionId = connectionId;
+            this.direction = direction;
+            this.state = state;
+            this.stage = stage;
+            this.flags = flags;
+            this.clientVersion = clientVersion;
+            this.serverVersion = serverVersion;
+            this.packet = packet;
+        }
+    }
+
+    /**
+     * Captures the packets of one handler, must only be used from one thread at a time.
+     */
+    public static class Recorder {
+        private final UserConnection user;
+        private final Direction direction;
+        private PacketCapture checkedSession;
+        private boolean matched;
+        private PacketCapture current;
+        private State state;
+        private int clientVersion;
+        private int serverVersion;
+        private long timestamp;
+
+        public Recorder(UserConnection user, boolean incoming) {
+            this.user = user;
+            this.direction = incoming == user.isClientSide() ? Direction.CLIENTBOUND : Direction.SERVERBOUND;
+        }
+
+        /**
+         * Must be called before the packet is transformed, as the state might change.
+         */
+        public void before(ByteBuf buf) {
+            PacketCapture capture = session;
+            current = null;
+            ProtocolInfo info = user.getProtocolInfo();
+            if (capture == null || info == null) return;
+            // The username is only known after login, so connections are checked again until then
+            if (capture != checkedSession || (!matched && info.getUsername() == null)) {
+                checkedSession = capture;
+                matched = capture.matches(user);
+            }
+            if (!matched) return;
+
+            current = capture;
+            state = direction == Direction.SERVERBOUND ? info.getServerState() : info.getClientState();
+            clientVersion = info.protocolVersion().getVersion();
+            serverVersion = info.serverProtocolVersion().getVersion();
+            timestamp = capture.baseMillis * 1000 + (System.nanoTime() - capture.baseNanos) / 1000;
+            capture.offer(frame(CaptureFile.STAGE_BEFORE, buf));
+        }
+
+        public void after(ByteBuf buf) {
+            if (current == null) return;
+            current.offer(frame(CaptureFile.STAGE_AFTER, buf));
+            current = null;
+        }
+
+        private Frame frame(byte stage, ByteBuf buf) {
+            byte[] packet = new byte[buf.readableBytes()];
+            buf.getBytes(buf.readerIndex(), packet);
+            return new Frame(timestamp, user.getId(), (byte) direction.ordinal(), (byte) state.ordinal(), stage,
+                    user.isClientSide() ? CaptureFile.FLAG_CLIENT_SIDE : 0, clientVersion, serverVersion, packet);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.commands.subs;
+
+import com.viaversion.fabric.common.handler.AllocationProfiler;
+import com.viaversion.viaversion.api.command.ViaCommandSender;
+import com.viaversion.viaversion.api.command.ViaSubCommand;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class AllocProfileSubCommand implements ViaSubCommand {
+    private static final List<String> ACTIONS = Arrays.asList("start", "stop", "report");
+
+    @Override
+    public String name() {
+        return "allocprofile";
+    }
+
+    @Override
+    public String description() {
+        return "Profiles the heap allocated while transforming each packet type";
+    }
+
+    @Override
+    public String usage() {
+        return "allocprofile <start|stop|report> [count]";
+    }
+
+    @Override
+    public boolean execute(ViaCommandSender viaCommandSender, String[] strings) {
+        if (strings.length < 1) return false;
+        switch (strings[0].toLowerCase()) {
+            case "start":
+                if (!AllocationProfiler.isSupported()) {
+                    viaCommandSender.sendMessage("This JVM doesn't support thread allocation counters");
+                    return true;
+                }
+                AllocationProfiler.start();
+                viaCommandSender.sendMessage("Started allocation profiling");
+                return true;
+            case "stop":
+                AllocationProfiler.stop();
+                viaCommandSender.sendMessage("Stopped allocation profiling");
+                return true;
+            case "report":
+                int count = 10;
+                if (strings.length > 1) {
+                    try {
+                        count = Integer.parseInt(strings[1]);
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+                report(viaCommandSender, count);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void report(ViaCommandSender sender, int count) {
+        double seconds = AllocationProfiler.seconds();
+        List<AllocationProfiler.Entry> perPacket = AllocationProfiler.top(count,
+                Comparator.comparingDouble(AllocationProfiler.Entry::bytesPerPacket).reversed());
+        if (perPacket.isEmpty() || seconds <= 0) {
+            sender.sendMessage("No allocations recorded, use 'allocprofile start' to start");
+            return;
+        }
+        sender.sendMessage(String.format("Profiled %.1fs%s, by bytes per packet:", seconds,
+                AllocationProfiler.isEnabled() ? " (running)" : ""));
+        for (AllocationProfiler.Entry entry : perPacket) {
+            sender.sendMessage(format(entry, seconds));
+        }
+        sender.sendMessage("By bytes per second:");
+        for (AllocationProfiler.Entry entry : AllocationProfiler.top(count,
+                Comparator.comparingLong(AllocationProfiler.Entry::bytes).reversed())) {
+            sender.sendMessage(format(entry, seconds));
+        }
+    }
+
+    private String format(AllocationProfiler.Entry entry, double seconds) {
+        return String.format("%s %s %s 0x%02X: n=%d %.0fB/packet %.1fKiB/s",
+                entry.direction(), entry.target(), entry.state(), entry.packetId(), entry.packets(),
+                entry.bytesPerPacket(), entry.bytes() / 1024.0 / seconds);
+    }
+
+    @Override
+    public List<String> onTabComplete(ViaCommandSender sender, String[] args) {
+        if (args.length == 1) {
+            return ACTIONS.stream()
+                    .filter(it -> it.startsWith(args[0]))
+                    .collect(Collectors.toList());
+        }
+        return ViaSubCommand.super.onTabComplete(sender, args);
+    }
+}
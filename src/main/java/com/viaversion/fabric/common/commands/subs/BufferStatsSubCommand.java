@@ -0,0 +1,76 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.commands.subs;
+
+import com.google.common.cache.CacheStats;
+import com.viaversion.fabric.common.handler.BroadcastTransformCache;
+import com.viaversion.fabric.common.handler.TransformStats;
+import com.viaversion.viaversion.api.command.ViaCommandSender;
+import com.viaversion.viaversion.api.command.ViaSubCommand;
+
+import java.util.Collections;
+import java.util.List;
+
+public class BufferStatsSubCommand implements ViaSubCommand {
+    @Override
+    public String name() {
+        return "bufferstats";
+    }
+
+    @Override
+    public String description() {
+        return "Shows how packet buffers were handled by the transformer";
+    }
+
+    @Override
+    public String usage() {
+        return "bufferstats [reset]";
+    }
+
+    @Override
+    public boolean execute(ViaCommandSender viaCommandSender, String[] strings) {
+        if (strings.length == 1 && strings[0].equalsIgnoreCase("reset")) {
+            TransformStats.reset();
+            viaCommandSender.sendMessage("Reset buffer stats");
+            return true;
+        }
+        long predicted = TransformStats.SIZE_PREDICTED.sum();
+        long resized = TransformStats.SIZE_RESIZED.sum();
+        long sized = predicted + resized;
+        viaCommandSender.sendMessage("Passed through: " + TransformStats.PASSTHROUGH.sum()
+                + ", transformed in place: " + TransformStats.IN_PLACE.sum()
+                + ", copied: " + TransformStats.COPIED.sum()
+                + ", offloaded: " + TransformStats.OFFLOADED.sum());
+        viaCommandSender.sendMessage("Copy buffer size predicted: " + predicted + ", resized: " + resized
+                + (sized == 0 ? "" : String.format(" (%.1f%% predicted)", predicted * 100.0 / sized)));
+        CacheStats cacheStats = BroadcastTransformCache.stats();
+        if (cacheStats != null) {
+            viaCommandSender.sendMessage("Broadcast cache hits: " + cacheStats.hitCount() + ", misses: " + cacheStats.missCount()
+                    + ", evictions: " + cacheStats.evictionCount());
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(ViaCommandSender sender, String[] args) {
+        if (args.length == 1 && "reset".startsWith(args[0])) {
+            return Collections.singletonList("reset");
+        }
+        return ViaSubCommand.super.onTabComplete(sender, args);
+    }
+}
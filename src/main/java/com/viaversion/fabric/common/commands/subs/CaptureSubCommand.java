@@ -0,0 +1,103 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.commands.subs;
+
+import com.viaversion.fabric.common.capture.PacketCapture;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.command.ViaCommandSender;
+import com.viaversion.viaversion.api.command.ViaSubCommand;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+public class CaptureSubCommand implements ViaSubCommand {
+    private static final List<String> ACTIONS = Arrays.asList("start", "stop", "status");
+
+    @Override
+    public String name() {
+        return "capture";
+    }
+
+    @Override
+    public String description() {
+        return "Captures the packets of connections before and after they're transformed";
+    }
+
+    @Override
+    public String usage() {
+        return "capture <start [address|username...]|stop|status>";
+    }
+
+    @Override
+    public boolean execute(ViaCommandSender viaCommandSender, String[] strings) {
+        if (strings.length < 1) return false;
+        switch (strings[0].toLowerCase()) {
+            case "start":
+                try {
+                    PacketCapture capture = PacketCapture.start(Arrays.asList(strings).subList(1, strings.length),
+                            Via.getPlatform().getLogger());
+                    viaCommandSender.sendMessage("Capturing " + describeTargets(capture) + " to " + capture.path());
+                } catch (IOException e) {
+                    Via.getPlatform().getLogger().log(Level.WARNING, "Couldn't start packet capture", e);
+                    viaCommandSender.sendMessage("Couldn't start packet capture: " + e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    viaCommandSender.sendMessage("Couldn't start packet capture: " + e.getMessage());
+                }
+                return true;
+            case "stop": {
+                PacketCapture capture = PacketCapture.stop();
+                if (capture == null) {
+                    viaCommandSender.sendMessage("No packet capture is running");
+                } else {
+                    viaCommandSender.sendMessage("Stopped capture " + capture.path() + ": " + capture.frames()
+                            + " frames, " + capture.dropped() + " dropped");
+                }
+                return true;
+            }
+            case "status": {
+                PacketCapture capture = PacketCapture.getSession();
+                if (capture == null) {
+                    viaCommandSender.sendMessage("No packet capture is running");
+                } else {
+                    viaCommandSender.sendMessage("Capturing " + describeTargets(capture) + " to " + capture.path()
+                            + ": " + capture.frames() + " frames, " + capture.dropped() + " dropped");
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private String describeTargets(PacketCapture capture) {
+        return capture.targets().isEmpty() ? "all connections" : String.join(", ", capture.targets());
+    }
+
+    @Override
+    public List<String> onTabComplete(ViaCommandSender sender, String[] args) {
+        if (args.length == 1) {
+            return ACTIONS.stream()
+                    .filter(it -> it.startsWith(args[0]))
+                    .collect(Collectors.toList());
+        }
+        return ViaSubCommand.super.onTabComplete(sender, args);
+    }
+}
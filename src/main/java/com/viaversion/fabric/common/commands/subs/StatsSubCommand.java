@@ -0,0 +1,99 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.commands.subs;
+
+import com.viaversion.fabric.common.handler.TransformLatencyStats;
+import com.viaversion.viaversion.api.command.ViaCommandSender;
+import com.viaversion.viaversion.api.command.ViaSubCommand;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class StatsSubCommand implements ViaSubCommand {
+    private static final List<String> ACTIONS = Arrays.asList("on", "off", "reset");
+
+    @Override
+    public String name() {
+        return "stats";
+    }
+
+    @Override
+    public String description() {
+        return "Shows the packet types which take the longest to transform";
+    }
+
+    @Override
+    public String usage() {
+        return "stats [on|off|reset|<count>]";
+    }
+
+    @Override
+    public boolean execute(ViaCommandSender viaCommandSender, String[] strings) {
+        int count = 10;
+        if (strings.length == 1) {
+            switch (strings[0].toLowerCase()) {
+                case "on":
+                    TransformLatencyStats.setEnabled(true);
+                    viaCommandSender.sendMessage("Started recording transform latency");
+                    return true;
+                case "off":
+                    TransformLatencyStats.setEnabled(false);
+                    viaCommandSender.sendMessage("Stopped recording transform latency");
+                    return true;
+                case "reset":
+                    TransformLatencyStats.reset();
+                    viaCommandSender.sendMessage("Reset transform latency stats");
+                    return true;
+                default:
+                    try {
+                        count = Integer.parseInt(strings[0]);
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+            }
+        }
+
+        if (!TransformLatencyStats.isEnabled()) {
+            viaCommandSender.sendMessage("Transform latency isn't being recorded, use 'stats on' to start");
+        }
+        List<TransformLatencyStats.Histogram> top = TransformLatencyStats.top(count);
+        if (top.isEmpty()) {
+            viaCommandSender.sendMessage("No transforms recorded");
+            return true;
+        }
+        for (TransformLatencyStats.Histogram histogram : top) {
+            long n = histogram.count();
+            viaCommandSender.sendMessage(String.format("%s %s %s 0x%02X: n=%d avg=%.1fus p50<%.1fus p99<%.1fus total=%.1fms",
+                    histogram.direction(), histogram.target(), histogram.state(), histogram.packetId(), n,
+                    histogram.totalNanos() / 1000.0 / n, histogram.percentile(50) / 1000.0,
+                    histogram.percentile(99) / 1000.0, histogram.totalNanos() / 1_000_000.0));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(ViaCommandSender sender, String[] args) {
+        if (args.length == 1) {
+            return ACTIONS.stream()
+                    .filter(it -> it.startsWith(args[0]))
+                    .collect(Collectors.toList());
+        }
+        return ViaSubCommand.super.onTabComplete(sender, args);
+    }
+}
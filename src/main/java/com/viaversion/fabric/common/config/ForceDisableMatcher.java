@@ -0,0 +1,316 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.config;
+
+import com.google.common.net.InetAddresses;
+import com.google.common.primitives.Ints;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+/**
+ * The client-side-force-disable list compiled once, so checking an address doesn't depend on the size of the list and
+ * doesn't allocate. Hostnames and wildcards (mc.example.com, *.example.com) are kept in a trie of their labels from
+ * the right, IPs, IP wildcards (192.168.*) and CIDR ranges (10.0.0.0/8, 2001:db8::/32) in a tree of their bits.
+ */
+public class ForceDisableMatcher {
+    private static final int IPV6_UPPER = 0;
+    private static final int IPV6_LOWER = 1;
+    private static final int IPV6_VALID = 2;
+    private static final long INVALID = 0;
+    private final LabelNode hosts = new LabelNode();
+    private final BitNode ipv4 = new BitNode();
+    private final BitNode ipv6 = new BitNode();
+
+    public ForceDisableMatcher(Iterable<?> entries) {
+        for (Object entry : entries) {
+            if (entry instanceof String) add((String) entry);
+        }
+    }
+
+    private void add(String entry) {
+        if (addIp(entry)) return;
+        boolean wildcard = entry.startsWith("*.");
+        String[] labels = (wildcard ? entry.substring(2) : entry).split("\\.");
+        LabelNode node = hosts;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            node = node.child(labels[i]);
+        }
+        if (wildcard) {
+            node.wildcard = entry;
+        } else {
+            node.exact = entry;
+        }
+    }
+
+    private boolean addIp(String entry) {
+        int slash = entry.indexOf('/');
+        String address = slash == -1 ? entry : entry.substring(0, slash);
+        Integer prefix = slash == -1 ? null : Ints.tryParse(entry.substring(slash + 1));
+        if (slash != -1 && prefix == null) return false;
+
+        if (address.indexOf(':') == -1) {
+            String[] octets = address.split("\\.");
+            int length = octets.length;
+            // 192.168.* covers the octets before the wildcard
+            if (slash == -1 && length >= 2 && length <= 4 && octets[length - 1].equals("*")) {
+                prefix = (length - 1) * 8;
+                octets = Arrays.copyOf(octets, length - 1);
+            } else if (length != 4) {
+                return false;
+            }
+            long bits = 0;
+            for (int i = 0; i < 4; i++) {
+                Integer octet = i < octets.length ? Ints.tryParse(octets[i]) : Integer.valueOf(0);
+                if (octet == null || octet < 0 || octet > 255) return false;
+                bits = bits << 8 | octet;
+            }
+            if (prefix == null) prefix = 32;
+            if (prefix < 0 || prefix > 32) return false;
+            ipv4.add(bits << 32, 0, prefix, entry);
+            return true;
+        }
+
+        if (!InetAddresses.isInetAddress(address)) return false;
+        InetAddress parsed = InetAddresses.forString(address);
+        if (parsed instanceof Inet4Address) return false;
+        byte[] bytes = parsed.getAddress();
+        if (prefix == null) prefix = 128;
+        if (prefix < 0 || prefix > 128) return false;
+        ipv6.add(toLong(bytes, 0), toLong(bytes, 8), prefix, entry);
+        return true;
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @param address a hostname or IP as the game or java formats it
+     * @return the entry of the list which matches the address, or null if none does
+     */
+    public String match(String address) {
+        long ipv4Bits = parseIpv4(address);
+        if (ipv4Bits != -1) return ipv4.match(ipv4Bits << 32, 0, 32);
+        if (address.indexOf(':') != -1 && parseIpv6(address, IPV6_VALID) == 1) {
+            return ipv6.match(parseIpv6(address, IPV6_UPPER), parseIpv6(address, IPV6_LOWER), 128);
+        }
+        return matchHost(address);
+    }
+
+    private String matchHost(String address) {
+        int end = address.length();
+        while (end > 0 && address.charAt(end - 1) == '.') end--; // Like String.split, which drops trailing labels
+        LabelNode node = hosts;
+        while (true) {
+            int start = address.lastIndexOf('.', end - 1) + 1;
+            node = node.get(address, start, end);
+            if (node == null) return null;
+            if (start == 0) return node.exact;
+            // *.example.com needs at least one label before example.com
+            if (node.wildcard != null) return node.wildcard;
+            end = start - 1;
+        }
+    }
+
+    /**
+     * @return the address in the lower 32 bits, or -1 if it's not 4 numeric octets
+     */
+    private static long parseIpv4(String address) {
+        long bits = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet == -1 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) return -1;
+            } else if (c == '.' && octet != -1 && octets < 3) {
+                bits = bits << 8 | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octet == -1 || octets != 3) return -1;
+        return bits << 8 | octet;
+    }
+
+    /**
+     * Parses an IPv6 address without allocating, so it's called for each half.
+     *
+     * @param part {@link #IPV6_UPPER} or {@link #IPV6_LOWER} for the 64 bits, {@link #IPV6_VALID} for 1 if it's an
+     *             IPv6 address in hex groups
+     */
+    private static long parseIpv6(String address, int part) {
+        int end = address.indexOf('%'); // Scope of link-local addresses
+        if (end == -1) end = address.length();
+        long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+        int headGroups = 0, tailGroups = 0;
+        boolean compressed = false;
+        int i = 0;
+        if (address.startsWith("::")) {
+            compressed = true;
+            i = 2;
+        }
+        while (i < end) {
+            int group = 0;
+            int digits = 0;
+            while (i < end && digits < 5) {
+                int digit = Character.digit(address.charAt(i), 16);
+                if (digit == -1) break;
+                group = group << 4 | digit;
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 4) return INVALID;
+            if (compressed) {
+                tailHi = tailHi << 16 | tailLo >>> 48;
+                tailLo = tailLo << 16 | group;
+                tailGroups++;
+            } else {
+                headHi = headHi << 16 | headLo >>> 48;
+                headLo = headLo << 16 | group;
+                headGroups++;
+            }
+            if (i == end) break;
+            if (address.charAt(i) != ':') return INVALID;
+            i++;
+            if (i < end && address.charAt(i) == ':') {
+                if (compressed) return INVALID;
+                compressed = true;
+                i++;
+            }
+        }
+        if (headGroups + tailGroups > 8 || (!compressed && headGroups != 8)) return INVALID;
+        if (part == IPV6_VALID) return 1;
+        // Moves the groups before :: to the top
+        int shift = (8 - headGroups) * 16;
+        long hi, lo;
+        if (shift >= 128) {
+            hi = 0;
+            lo = 0;
+        } else if (shift >= 64) {
+            hi = headLo << (shift - 64);
+            lo = 0;
+        } else if (shift > 0) {
+            hi = headHi << shift | headLo >>> (64 - shift);
+            lo = headLo << shift;
+        } else {
+            hi = headHi;
+            lo = headLo;
+        }
+        return part == IPV6_UPPER ? hi | tailHi : lo | tailLo;
+    }
+
+    private static final class LabelNode {
+        private String[] labels = new String[0];
+        private LabelNode[] children = new LabelNode[0];
+        private int size;
+        private String exact;
+        private String wildcard;
+
+        private LabelNode child(String label) {
+            LabelNode child = get(label, 0, label.length());
+            if (child != null) return child;
+            if ((size + 1) * 2 > labels.length) resize();
+            child = new LabelNode();
+            int slot = slot(label, 0, label.length());
+            while (labels[slot] != null) slot = (slot + 1) & (labels.length - 1);
+            labels[slot] = label;
+            children[slot] = child;
+            size++;
+            return child;
+        }
+
+        private void resize() {
+            String[] oldLabels = labels;
+            LabelNode[] oldChildren = children;
+            labels = new String[Math.max(4, oldLabels.length * 2)];
+            children = new LabelNode[labels.length];
+            for (int i = 0; i < oldLabels.length; i++) {
+                if (oldLabels[i] == null) continue;
+                int slot = slot(oldLabels[i], 0, oldLabels[i].length());
+                while (labels[slot] != null) slot = (slot + 1) & (labels.length - 1);
+                labels[slot] = oldLabels[i];
+                children[slot] = oldChildren[i];
+            }
+        }
+
+        /**
+         * Looks up the label between start and end of the address without cutting it out.
+         */
+        private LabelNode get(String address, int start, int end) {
+            if (size == 0) return null;
+            int length = end - start;
+            for (int slot = slot(address, start, end); labels[slot] != null; slot = (slot + 1) & (labels.length - 1)) {
+                String label = labels[slot];
+                if (label.length() == length && address.regionMatches(start, label, 0, length)) return children[slot];
+            }
+            return null;
+        }
+
+        private int slot(String address, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + address.charAt(i);
+            }
+            return (hash ^ hash >>> 16) & (labels.length - 1);
+        }
+    }
+
+    private static final class BitNode {
+        private BitNode zero;
+        private BitNode one;
+        private String entry;
+
+        private void add(long hi, long lo, int prefix, String entry) {
+            BitNode node = this;
+            for (int bit = 0; bit < prefix && node.entry == null; bit++) {
+                if (bit(hi, lo, bit)) {
+                    if (node.one == null) node.one = new BitNode();
+                    node = node.one;
+                } else {
+                    if (node.zero == null) node.zero = new BitNode();
+                    node = node.zero;
+                }
+            }
+            // A wider range which is already listed covers it
+            if (node.entry == null) node.entry = entry;
+        }
+
+        private String match(long hi, long lo, int bits) {
+            BitNode node = this;
+            for (int bit = 0; bit < bits && node.entry == null; bit++) {
+                node = bit(hi, lo, bit) ? node.one : node.zero;
+                if (node == null) return null;
+            }
+            return node.entry;
+        }
+
+        private static boolean bit(long hi, long lo, int bit) {
+            return bit < 64 ? (hi >>> (63 - bit) & 1) != 0 : (lo >>> (127 - bit) & 1) != 0;
+        }
+    }
+}
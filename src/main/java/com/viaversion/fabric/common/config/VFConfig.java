@@ -17,10 +17,12 @@
  */
 package com.viaversion.fabric.common.config;
 
+import com.viaversion.fabric.common.handler.BroadcastTransformCache;
 import com.viaversion.viaversion.util.Config;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -33,10 +35,33 @@ public class VFConfig extends Config {
     public static final String CLIENT_SIDE_FORCE_DISABLE = "client-side-force-disable";
     public static final String HIDE_BUTTON = "hide-button";
     public static final String IGNORE_REGISTRY_SYNC_ERRORS = "ignore-registry-sync-errors";
+    public static final String IN_PLACE_TRANSFORM = "in-place-transform";
+    public static final String PASSTHROUGH_UNMAPPED_PACKETS = "passthrough-unmapped-packets";
+    public static final String DETACH_NATIVE_CONNECTIONS = "detach-native-connections";
+    public static final String OFFLOAD_TRANSFORM_THRESHOLD = "offload-transform-threshold";
+    public static final String OFFLOAD_TRANSFORM_PACKET_IDS = "offload-transform-packet-ids";
+    public static final String OFFLOAD_TRANSFORM_THREADS = "offload-transform-threads";
+    public static final String BROADCAST_CACHE_PACKET_IDS = "broadcast-cache-packet-ids";
+    public static final String BROADCAST_CACHE_SIZE_MB = "broadcast-cache-size-mb";
+    public static final String METRICS_ENABLED = "metrics-enabled";
+    public static final String METRICS_PROMETHEUS_FILE = "metrics-prometheus-file";
+    public static final String METRICS_PROMETHEUS_PORT = "metrics-prometheus-port";
+    public static final String METRICS_PROMETHEUS_INTERVAL = "metrics-prometheus-interval";
+    public static final String CAPTURE_FILE_SIZE_MB = "capture-file-size-mb";
+    private static VFConfig instance;
+    private volatile ForceDisableMatcher forceDisableMatcher;
 
     public VFConfig(File configFile, Logger logger) {
         super(configFile, logger);
         reload();
+        instance = this;
+    }
+
+    /**
+     * @return the loaded ViaFabric config, or null if the version module didn't load it yet
+     */
+    public static VFConfig getInstance() {
+        return instance;
     }
 
     @Override
@@ -46,6 +71,17 @@ public class VFConfig extends Config {
 
     @Override
     protected void handleConfig(Map<String, Object> map) {
+        forceDisableMatcher = null;
+        BroadcastTransformCache.invalidate();
+    }
+
+    @Override
+    public void set(String path, Object value) {
+        super.set(path, value);
+        if (CLIENT_SIDE_FORCE_DISABLE.equals(path)) forceDisableMatcher = null;
+        if (BROADCAST_CACHE_PACKET_IDS.equals(path) || BROADCAST_CACHE_SIZE_MB.equals(path)) {
+            BroadcastTransformCache.invalidate();
+        }
     }
 
     @Override
@@ -81,11 +117,91 @@ public class VFConfig extends Config {
         return getBoolean(HIDE_BUTTON, false);
     }
 
-    public boolean isForcedDisable(String line) {
-        return getClientSideForceDisable().contains(line);
+    public boolean isForcedDisable(String address) {
+        return getForceDisableMatch(address) != null;
+    }
+
+    /**
+     * @return the client-side-force-disable entry matching the address, or null if none does
+     */
+    public String getForceDisableMatch(String address) {
+        ForceDisableMatcher matcher = forceDisableMatcher;
+        if (matcher == null) {
+            // Compiled again after the config is reloaded or the list is changed
+            matcher = new ForceDisableMatcher(getClientSideForceDisable());
+            forceDisableMatcher = matcher;
+        }
+        return matcher.match(address);
     }
 
     public boolean isIgnoreRegistrySyncErrors() {
         return getBoolean(IGNORE_REGISTRY_SYNC_ERRORS, false);
     }
+
+    public boolean isInPlaceTransform() {
+        return getBoolean(IN_PLACE_TRANSFORM, true);
+    }
+
+    public boolean isPassthroughUnmappedPackets() {
+        return getBoolean(PASSTHROUGH_UNMAPPED_PACKETS, true);
+    }
+
+    public boolean isDetachNativeConnections() {
+        return getBoolean(DETACH_NATIVE_CONNECTIONS, true);
+    }
+
+    public int getOffloadTransformThreshold() {
+        return getInt(OFFLOAD_TRANSFORM_THRESHOLD, -1);
+    }
+
+    public List<Integer> getOffloadTransformPacketIds() {
+        return getPacketIds(OFFLOAD_TRANSFORM_PACKET_IDS);
+    }
+
+    public int getOffloadTransformThreads() {
+        return getInt(OFFLOAD_TRANSFORM_THREADS, 2);
+    }
+
+    public List<Integer> getBroadcastCachePacketIds() {
+        return getPacketIds(BROADCAST_CACHE_PACKET_IDS);
+    }
+
+    public int getBroadcastCacheSizeMb() {
+        return getInt(BROADCAST_CACHE_SIZE_MB, 16);
+    }
+
+    public boolean isMetricsEnabled() {
+        return getBoolean(METRICS_ENABLED, false);
+    }
+
+    public String getMetricsPrometheusFile() {
+        return get(METRICS_PROMETHEUS_FILE, "");
+    }
+
+    public int getMetricsPrometheusPort() {
+        return getInt(METRICS_PROMETHEUS_PORT, -1);
+    }
+
+    public int getMetricsPrometheusInterval() {
+        return getInt(METRICS_PROMETHEUS_INTERVAL, 15);
+    }
+
+    public int getCaptureFileSizeMb() {
+        return getInt(CAPTURE_FILE_SIZE_MB, 64);
+    }
+
+    private List<Integer> getPacketIds(String key) {
+        List<Integer> ids = new ArrayList<>();
+        for (Object id : get(key, Collections.emptyList())) {
+            if (id instanceof Number) {
+                ids.add(((Number) id).intValue());
+            } else {
+                try {
+                    ids.add(Integer.decode(String.valueOf(id)));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return ids;
+    }
 }
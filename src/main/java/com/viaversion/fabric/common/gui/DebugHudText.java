@@ -0,0 +1,116 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.gui;
+
+import com.viaversion.fabric.common.handler.AllocationProfiler;
+import com.viaversion.fabric.common.handler.CommonTransformer;
+import com.viaversion.fabric.common.handler.ConnectionStats;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import io.netty.channel.Channel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The ViaFabric lines of the debug HUD. They're rebuilt a few times per second instead of every frame, rates are
+ * averaged over about the last second.
+ */
+public class DebugHudText {
+    private static final long UPDATE_INTERVAL = 250_000_000L;
+    // Snapshots of the last second, one per update
+    private static final int WINDOW = 4;
+    private static final ConnectionStats.Snapshot[] snapshots = new ConnectionStats.Snapshot[WINDOW + 1];
+    private static int snapshotIndex;
+    private static ConnectionStats trackedStats;
+    private static long lastUpdate;
+    private static List<String> lines = Collections.emptyList();
+
+    /**
+     * Must be called from the render thread.
+     *
+     * @param channel supplies the channel of the current connection, only called when the text is rebuilt
+     */
+    public static List<String> getLines(Supplier<Channel> channel) {
+        long now = System.nanoTime();
+        if (now - lastUpdate >= UPDATE_INTERVAL || lastUpdate == 0) {
+            lastUpdate = now;
+            ConnectionStats.requestTiming();
+            lines = buildLines(channel.get());
+        }
+        return lines;
+    }
+
+    private static List<String> buildLines(Channel channel) {
+        List<String> lines = new ArrayList<>(2);
+        String line = "[ViaFabric] I: " + Via.getManager().getConnectionManager().getConnections().size() + " (F: "
+                + Via.getManager().getConnectionManager().getConnectedClients().size() + ")";
+        // Native connections don't have the Via handlers anymore once they're detached
+        UserConnection connection = channel != null ? channel.attr(CommonTransformer.USER_CONNECTION).get() : null;
+        if (connection != null) {
+            ProtocolInfo protocol = connection.getProtocolInfo();
+            if (protocol != null) {
+                line += " / C: " + protocol.protocolVersion() + " S: " + protocol.serverProtocolVersion() + " A: " + connection.isActive();
+            }
+        }
+        lines.add(line);
+
+        ConnectionStats stats = connection != null ? connection.get(ConnectionStats.class) : null;
+        if (stats != trackedStats) {
+            trackedStats = stats;
+            Arrays.fill(snapshots, null);
+        }
+        if (stats == null) return lines;
+
+        ConnectionStats.Snapshot current = stats.snapshot();
+        snapshotIndex = (snapshotIndex + 1) % snapshots.length;
+        // The slot being replaced holds the oldest snapshot
+        ConnectionStats.Snapshot since = snapshots[snapshotIndex];
+        snapshots[snapshotIndex] = current;
+        if (since == null) {
+            for (int i = 1; i < snapshots.length && since == null; i++) {
+                since = snapshots[(snapshotIndex + i) % snapshots.length];
+            }
+        }
+        if (since == null || since == current) return lines;
+
+        double seconds = current.seconds(since);
+        long transforms = current.transforms(since);
+        String stats = String.format("[ViaFabric] In: %s/s Out: %s/s Pkt: %.0f/s T: %.1f\u00B5s p99<%.1f\u00B5s",
+                formatBytes(current.bytesIn(since) / seconds), formatBytes(current.bytesOut(since) / seconds),
+                current.packets(since) / seconds,
+                transforms == 0 ? 0 : current.transformNanos(since) / 1000.0 / transforms,
+                current.percentile(since, 99) / 1000.0);
+        // Not every JVM counts the bytes allocated by each thread
+        if (AllocationProfiler.isSupported()) {
+            stats += " Alloc: " + formatBytes(current.allocatedBytes(since) / seconds) + "/s";
+        }
+        lines.add(stats);
+        return lines;
+    }
+
+    private static String formatBytes(double bytes) {
+        if (bytes < 1024) return String.format("%.0f B", bytes);
+        if (bytes < 1024 * 1024) return String.format("%.1f KiB", bytes / 1024);
+        return String.format("%.1f MiB", bytes / 1024 / 1024);
+    }
+}
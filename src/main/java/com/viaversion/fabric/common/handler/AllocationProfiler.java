@@ -0,0 +1,194 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Attributes the heap allocated by the thread transforming a packet to the packet type and the version on the other
+ * side of the translation, using the thread allocation counters of HotSpot.
+ */
+public class AllocationProfiler {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+    private static final Map<Long, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+    private static volatile long startNanos;
+    private static volatile long stopNanos;
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (LinkageError | UnsupportedOperationException ignored) {
+        }
+        return null;
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if this JVM doesn't count them
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (THREADS == null) return -1;
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears the previous profile and starts a new one.
+     */
+    public static void start() {
+        if (!isSupported()) return;
+        ENTRIES.values().forEach(Entry::reset);
+        startNanos = System.nanoTime();
+        enabled = true;
+    }
+
+    public static void stop() {
+        if (!enabled) return;
+        enabled = false;
+        stopNanos = System.nanoTime();
+    }
+
+    /**
+     * @return seconds covered by the current or last profile
+     */
+    public static double seconds() {
+        if (startNanos == 0) return 0;
+        return ((enabled ? System.nanoTime() : stopNanos) - startNanos) / 1e9;
+    }
+
+    /**
+     * @return the entries with at least one packet, sorted by the comparator
+     */
+    public static List<Entry> top(int count, Comparator<Entry> comparator) {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : ENTRIES.values()) {
+            if (entry.packets() != 0) entries.add(entry);
+        }
+        entries.sort(comparator);
+        return entries.subList(0, Math.min(count, entries.size()));
+    }
+
+    /**
+     * Profiles the transforms of one handler, must only be used from one thread at a time.
+     */
+    public static class Recorder extends PacketTypeRecorder<Entry> {
+        public Recorder(UserConnection user, boolean incoming) {
+            super(user, incoming, ENTRIES);
+        }
+
+        @Override
+        protected boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        protected long measure() {
+            // Offloaded transforms run on different threads, but start and stop are on the same one
+            return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        @Override
+        protected Entry create(Direction direction, State state, int packetId, ProtocolVersion target) {
+            return new Entry(direction, state, packetId, target);
+        }
+
+        @Override
+        protected void record(Entry entry, long bytes) {
+            entry.record(bytes);
+        }
+    }
+
+    public static class Entry {
+        private final LongAdder packets = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final Direction direction;
+        private final State state;
+        private final int packetId;
+        private final ProtocolVersion target;
+
+        private Entry(Direction direction, State state, int packetId, ProtocolVersion target) {
+            this.direction = direction;
+            this.state = state;
+            this.packetId = packetId;
+            this.target = target;
+        }
+
+        private void record(long bytes) {
+            packets.increment();
+            this.bytes.add(Math.max(0, bytes));
+        }
+
+        private void reset() {
+            packets.reset();
+            bytes.reset();
+        }
+
+        public long packets() {
+            return packets.sum();
+        }
+
+        public long bytes() {
+            return bytes.sum();
+        }
+
+        public double bytesPerPacket() {
+            long packets = packets();
+            return packets == 0 ? 0 : (double) bytes() / packets;
+        }
+
+        public Direction direction() {
+            return direction;
+        }
+
+        public State state() {
+            return state;
+        }
+
+        public int packetId() {
+            return packetId;
+        }
+
+        public ProtocolVersion target() {
+            return target;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side cache of transformed clientbound packets, so a packet broadcast to many players on the same version
+ * is only transformed once. Only packet types whose transformation doesn't depend on the connection may be cached.
+ * <p>
+ * Looking a packet up hashes its whole body, so packets bigger than {@link #MAX_PACKET_SIZE} aren't cached.
+ */
+public class BroadcastTransformCache {
+    public static final int MAX_PACKET_SIZE = 64 * 1024;
+    private static volatile BroadcastTransformCache instance;
+    private static volatile boolean configured;
+    private final BitSet packetIds;
+    private final Cache<Key, byte[]> cache;
+
+    private BroadcastTransformCache(BitSet packetIds, long maxBytes) {
+        this.packetIds = packetIds;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Key, byte[]>weigher((key, value) -> key.content.readableBytes() + value.length)
+                .expireAfterWrite(10, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the cache for the config, or null if no packet type is cacheable
+     */
+    public static BroadcastTransformCache get(VFConfig config) {
+        if (configured) return instance;
+        return build(config);
+    }
+
+    private static synchronized BroadcastTransformCache build(VFConfig config) {
+        if (!configured && config != null) {
+            BitSet packetIds = new BitSet();
+            for (int id : config.getBroadcastCachePacketIds()) {
+                if (id >= 0) packetIds.set(id);
+            }
+            instance = packetIds.isEmpty() ? null
+                    : new BroadcastTransformCache(packetIds, config.getBroadcastCacheSizeMb() * 1024L * 1024L);
+            configured = true;
+        }
+        return instance;
+    }
+
+    /**
+     * Drops the cache, so it's built again from the config the next time a packet is sent. Must be called when the
+     * cache options change.
+     */
+    public static synchronized void invalidate() {
+        instance = null;
+        configured = false;
+    }
+
+    /**
+     * @return the stats of the cache, or null if it isn't enabled
+     */
+    public static synchronized CacheStats stats() {
+        return instance == null ? null : instance.cache.stats();
+    }
+
+    /**
+     * @return a key referencing the untransformed packet, or null if the packet can't be cached
+     */
+    public Key lookupKey(UserConnection user, ByteBuf buf) {
+        if (user.isClientSide() || Via.getManager().debugHandler().enabled()) return null;
+        ProtocolInfo info = user.getProtocolInfo();
+        if (info == null || info.getClientState() != State.PLAY) return null;
+        if (buf.readableBytes() > MAX_PACKET_SIZE) return null;
+        int id = CommonTransformer.peekPacketId(buf);
+        if (id < 0 || !packetIds.get(id)) return null;
+        return new Key(info.protocolVersion(), buf);
+    }
+
+    /**
+     * @return a new read-only buffer holding the cached transformed packet, or null on a miss
+     */
+    public ByteBuf get(Key key) {
+        byte[] transformed = cache.getIfPresent(key);
+        // The array is shared with every player the packet is sent to
+        return transformed == null ? null : Unpooled.wrappedBuffer(transformed).asReadOnly();
+    }
+
+    public void put(Key key, ByteBuf transformed) {
+        cache.put(key, ByteBufUtil.getBytes(transformed));
+    }
+
+    public static final class Key {
+        private final ProtocolVersion version;
+        private final ByteBuf content;
+        private final int hash;
+
+        private Key(ProtocolVersion version, ByteBuf content) {
+            this.version = version;
+            this.content = content;
+            this.hash = 31 * version.hashCode() + ByteBufUtil.hashCode(content);
+        }
+
+        private Key(ProtocolVersion version, ByteBuf content, int hash) {
+            this.version = version;
+            this.content = content;
+            this.hash = hash;
+        }
+
+        /**
+         * Copies the referenced packet, so the key stays valid after the buffer is transformed or released.
+         */
+        public Key copy() {
+            return new Key(version, Unpooled.wrappedBuffer(ByteBufUtil.getBytes(content)), hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && version.equals(key.version) && ByteBufUtil.equals(content, key.content);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
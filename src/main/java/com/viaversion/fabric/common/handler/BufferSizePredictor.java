@@ -0,0 +1,44 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+/**
+ * Learns how much each packet type grows or shrinks when transformed on a connection, so the
+ * buffer for the transformed packet can be allocated at the right size instead of being reallocated.
+ */
+public class BufferSizePredictor {
+    private static final int MAX_PACKET_ID = 0xFF;
+    private static final float ALPHA = 0.25F;
+    private static final int HEADROOM = 16;
+    private static final int MAX_PREDICTION = 8 * 1024 * 1024;
+    // Moving average of transformed size / original size, 0 while there is no sample yet
+    private final float[] ratios = new float[MAX_PACKET_ID + 1];
+
+    public int predict(int packetId, int inputSize) {
+        float ratio = packetId >= 0 && packetId <= MAX_PACKET_ID ? ratios[packetId] : 0;
+        if (ratio <= 1) return inputSize + HEADROOM;
+        return (int) Math.min(MAX_PREDICTION, (long) (inputSize * ratio) + HEADROOM);
+    }
+
+    public void record(int packetId, int inputSize, int outputSize) {
+        if (packetId < 0 || packetId > MAX_PACKET_ID || inputSize == 0) return;
+        float ratio = (float) outputSize / inputSize;
+        float old = ratios[packetId];
+        ratios[packetId] = old == 0 ? ratio : old + ALPHA * (ratio - old);
+    }
+}
@@ -17,7 +17,240 @@
  */
 package com.viaversion.fabric.common.handler;
 
+import com.viaversion.fabric.common.capture.PacketCapture;
+import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.fabric.common.jfr.FlightRecorderEvents;
+import com.viaversion.fabric.common.metrics.TransformMetrics;
+import com.viaversion.fabric.common.metrics.ViaFabricMetrics;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.exception.CancelCodecException;
+import com.viaversion.viaversion.exception.CancelDecoderException;
+import com.viaversion.viaversion.exception.CancelEncoderException;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.util.AttributeKey;
+
+/**
+ * Transforms the packets of one of the Via handlers of a connection, with the instrumentation both handlers share.
+ */
 public class CommonTransformer {
     public static final String HANDLER_DECODER_NAME = "via-decoder";
     public static final String HANDLER_ENCODER_NAME = "via-encoder";
+    /**
+     * The connection of the channel, which stays reachable after the Via handlers are detached.
+     */
+    public static final AttributeKey<UserConnection> USER_CONNECTION = AttributeKey.valueOf("viafabric-user-connection");
+    // Vanilla rejects decompressed packets bigger than this
+    private static final int MAX_PACKET_SIZE = 8 * 1024 * 1024;
+    private final UserConnection info;
+    private final boolean incoming;
+    private final boolean inPlace;
+    private final PassthroughFilter passthrough;
+    private final BufferSizePredictor sizePredictor = new BufferSizePredictor();
+    private final TransformLatencyStats.Recorder latency;
+    private final AllocationProfiler.Recorder allocations;
+    private final PacketCapture.Recorder capture;
+    private final FlightRecorderEvents events = FlightRecorderEvents.get();
+    private final TransformMetrics metrics;
+    private final ConnectionStats connectionStats;
+    private final VFConfig config;
+    private final boolean detachNative;
+    private boolean detaching;
+
+    /**
+     * @param incoming true for the decoder, false for the encoder
+     */
+    public CommonTransformer(UserConnection info, boolean incoming, VFConfig config) {
+        this.info = info;
+        this.incoming = incoming;
+        this.config = config;
+        this.latency = new TransformLatencyStats.Recorder(info, incoming);
+        this.allocations = new AllocationProfiler.Recorder(info, incoming);
+        this.capture = new PacketCapture.Recorder(info, incoming);
+        this.metrics = ViaFabricMetrics.transforms(info, incoming);
+        this.connectionStats = ConnectionStats.of(info);
+        this.inPlace = config == null || config.isInPlaceTransform();
+        this.passthrough = config == null || config.isPassthroughUnmappedPackets() ? new PassthroughFilter(info, incoming) : null;
+        this.detachNative = config == null || config.isDetachNativeConnections();
+    }
+
+    /**
+     * Must only be called from one thread at a time.
+     *
+     * @return the transformed packet, which the caller has to release
+     */
+    public ByteBuf transform(ChannelHandlerContext ctx, ByteBuf bytebuf) throws Exception {
+        if (incoming && connectionStats != null) connectionStats.received(bytebuf.readableBytes());
+        ByteBuf transformed = observeCancel(ctx, bytebuf);
+        if (!incoming && connectionStats != null) connectionStats.sent(transformed.readableBytes());
+        return transformed;
+    }
+
+    private ByteBuf observeCancel(ChannelHandlerContext ctx, ByteBuf bytebuf) throws Exception {
+        if (metrics == null && !events.isCancelEnabled()) return transformPacket(ctx, bytebuf);
+        int packetId = peekPacketId(bytebuf);
+        int size = bytebuf.readableBytes();
+        try {
+            return transformPacket(ctx, bytebuf);
+        } catch (Exception e) {
+            if (e instanceof CancelCodecException) {
+                if (metrics != null) metrics.cancelled();
+                if (events.isCancelEnabled()) events.cancel(info, incoming, packetId, size);
+            }
+            throw e;
+        }
+    }
+
+    private ByteBuf transformPacket(ChannelHandlerContext ctx, ByteBuf bytebuf) throws Exception {
+        if (incoming ? !info.checkIncomingPacket() : !info.checkOutgoingPacket()) {
+            throw incoming ? CancelDecoderException.generate(null) : CancelEncoderException.generate(null);
+        }
+        if (!info.shouldTransformPacket()) {
+            if (detachNative && !detaching && isNativeConnection(info)) {
+                detaching = true;
+                detach(ctx.pipeline(), info);
+            }
+            return bytebuf.retain();
+        }
+        // Packets Via doesn't change are captured too, replaying a connection needs all of them
+        capture.before(bytebuf);
+        if (passthrough != null && passthrough.canSkip(bytebuf)) {
+            TransformStats.PASSTHROUGH.increment();
+            capture.after(bytebuf);
+            return bytebuf.retain();
+        }
+        // Only clientbound packets are broadcast, the cache is built again when the config is reloaded
+        BroadcastTransformCache broadcastCache = incoming ? null : BroadcastTransformCache.get(config);
+        BroadcastTransformCache.Key cacheKey = broadcastCache != null ? broadcastCache.lookupKey(info, bytebuf) : null;
+        if (cacheKey != null) {
+            ByteBuf cached = broadcastCache.get(cacheKey);
+            if (cached != null) {
+                capture.after(cached);
+                return cached;
+            }
+            cacheKey = cacheKey.copy();
+        }
+
+        boolean timedForHud = connectionStats != null && ConnectionStats.isTiming();
+        boolean timed = metrics != null || timedForHud;
+        // Heap allocated by this thread, the pooled buffers themselves don't show up in it
+        long allocatedBefore = timed ? AllocationProfiler.currentThreadAllocatedBytes() : -1;
+        ByteBuf transformedBuf;
+        int packetId = -1;
+        int inputSize = bytebuf.readableBytes();
+        int initialCapacity = -1;
+        if (inPlace && canTransformInPlace(bytebuf)) {
+            TransformStats.IN_PLACE.increment();
+            transformedBuf = bytebuf.retain();
+        } else {
+            TransformStats.COPIED.increment();
+            packetId = peekPacketId(bytebuf);
+            transformedBuf = ctx.alloc().buffer(sizePredictor.predict(packetId, inputSize)).writeBytes(bytebuf);
+            initialCapacity = transformedBuf.capacity();
+        }
+        Object event = events.beginTransform(info, incoming, transformedBuf);
+        allocations.start(transformedBuf);
+        latency.start(transformedBuf);
+        long start = timed ? System.nanoTime() : 0;
+        if (timedForHud) ConnectionStats.checkTiming(start);
+        try {
+            if (incoming) {
+                info.transformIncoming(transformedBuf, CancelDecoderException::generate);
+            } else {
+                info.transformOutgoing(transformedBuf, CancelEncoderException::generate);
+            }
+            latency.stop();
+            allocations.stop();
+            capture.after(transformedBuf);
+            if (event != null) {
+                events.commitTransform(event, transformedBuf);
+            }
+            if (timed) {
+                long nanos = System.nanoTime() - start;
+                long allocated = allocatedBefore != -1
+                        ? AllocationProfiler.currentThreadAllocatedBytes() - allocatedBefore : 0;
+                if (metrics != null) {
+                    metrics.transformed(inputSize, transformedBuf.readableBytes(), nanos);
+                    metrics.allocated(allocated);
+                }
+                if (timedForHud) connectionStats.transformed(nanos, allocated);
+            }
+
+            if (initialCapacity != -1) {
+                sizePredictor.record(packetId, inputSize, transformedBuf.readableBytes());
+                if (transformedBuf.capacity() == initialCapacity) {
+                    TransformStats.SIZE_PREDICTED.increment();
+                } else {
+                    TransformStats.SIZE_RESIZED.increment();
+                }
+            }
+            if (cacheKey != null) {
+                broadcastCache.put(cacheKey, transformedBuf);
+            }
+            return transformedBuf.retain();
+        } finally {
+            transformedBuf.release();
+        }
+    }
+
+    /**
+     * Checks if ViaVersion can write the transformed packet directly into the buffer, which is only safe
+     * when nothing else holds a reference to it and it can grow to fit the transformed packet.
+     */
+    public static boolean canTransformInPlace(ByteBuf buf) {
+        return buf.refCnt() == 1
+                && buf.unwrap() == null // derived buffers (slices, duplicates) share memory with their parent
+                && !buf.isReadOnly()
+                && buf.maxCapacity() >= MAX_PACKET_SIZE;
+    }
+
+    /**
+     * Reads the packet id without moving the reader index.
+     *
+     * @return the packet id, or -1 if it isn't a valid VarInt within the readable bytes
+     */
+    public static int peekPacketId(ByteBuf buf) {
+        int value = 0;
+        int index = buf.readerIndex();
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (index >= buf.writerIndex()) return -1;
+            byte in = buf.getByte(index++);
+            value |= (in & 0x7F) << shift;
+            if ((in & 0x80) == 0) return value;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if ViaVersion left the connection inactive after the handshake, which means both sides speak the
+     * same version. Status connections are kept as the server list reads the version from the decoder.
+     */
+    public static boolean isNativeConnection(UserConnection user) {
+        if (user.isActive()) return false;
+        State state = user.getProtocolInfo().getServerState();
+        return state != State.HANDSHAKE && state != State.STATUS;
+    }
+
+    /**
+     * Removes both Via handlers, so the connection doesn't go through them for the rest of the session. Traffic is
+     * still counted for the debug HUD if the connection has stats.
+     */
+    public static void detach(ChannelPipeline pipeline, UserConnection user) {
+        ConnectionStats stats = user.get(ConnectionStats.class);
+        pipeline.channel().eventLoop().execute(() -> {
+            detach(pipeline, HANDLER_ENCODER_NAME, stats, false);
+            detach(pipeline, HANDLER_DECODER_NAME, stats, true);
+        });
+    }
+
+    private static void detach(ChannelPipeline pipeline, String name, ConnectionStats stats, boolean incoming) {
+        if (pipeline.get(name) == null) return;
+        if (stats != null) {
+            pipeline.replace(name, name + "-stats", new TrafficCountHandler(stats, incoming));
+        } else {
+            pipeline.remove(name);
+        }
+    }
 }
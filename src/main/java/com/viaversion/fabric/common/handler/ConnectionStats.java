@@ -0,0 +1,164 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.viaversion.viaversion.api.connection.StorableObject;
+import com.viaversion.viaversion.api.connection.UserConnection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative traffic and transform counters of a client-side connection, shown in the debug HUD. Traffic is always
+ * counted, transforms are only timed while the debug HUD shows them.
+ */
+public class ConnectionStats implements StorableObject {
+    private static final int BUCKETS = 32;
+    private static final long TIMING_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+    private static volatile boolean timing;
+    private static volatile long timingDeadline;
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder packetsIn = new LongAdder();
+    private final LongAdder packetsOut = new LongAdder();
+    private final LongAdder transformNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final Log2Histogram transformHistogram = new Log2Histogram(BUCKETS);
+
+    /**
+     * @return the stats shared by both handlers of the connection, or null on the server side
+     */
+    public static synchronized ConnectionStats of(UserConnection user) {
+        if (!user.isClientSide()) return null;
+        ConnectionStats stats = user.get(ConnectionStats.class);
+        if (stats == null) {
+            stats = new ConnectionStats();
+            user.put(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Keeps timing transforms for about another second, must be called regularly while the debug HUD is visible.
+     */
+    public static void requestTiming() {
+        timingDeadline = System.nanoTime() + TIMING_TIMEOUT;
+        timing = true;
+    }
+
+    /**
+     * @return true if transforms should be timed, doesn't read the clock
+     */
+    public static boolean isTiming() {
+        return timing;
+    }
+
+    /**
+     * Stops timing once nothing requested it for a while, called with the start of a transform that's timed anyway.
+     */
+    static void checkTiming(long now) {
+        if (now - timingDeadline > 0) timing = false;
+    }
+
+    public void received(int bytes) {
+        packetsIn.increment();
+        bytesIn.add(bytes);
+    }
+
+    public void sent(int bytes) {
+        packetsOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    /**
+     * @param allocated heap allocated by the thread during the transform, see {@link AllocationProfiler}
+     */
+    public void transformed(long nanos, long allocated) {
+        transformHistogram.record(nanos);
+        transformNanos.add(nanos);
+        allocatedBytes.add(allocated);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(System.nanoTime(), bytesIn.sum(), bytesOut.sum(), packetsIn.sum(), packetsOut.sum(),
+                transformNanos.sum(), allocatedBytes.sum(), transformHistogram.snapshot());
+    }
+
+    @Override
+    public boolean clearOnServerSwitch() {
+        return false;
+    }
+
+    public static class Snapshot {
+        final long time;
+        final long bytesIn;
+        final long bytesOut;
+        final long packetsIn;
+        final long packetsOut;
+        final long transformNanos;
+        final long allocatedBytes;
+        final long[] buckets;
+
+        Snapshot(long time, long bytesIn, long bytesOut, long packetsIn, long packetsOut, long transformNanos,
+                 long allocatedBytes, long[] buckets) {
+            this.time = time;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.packetsIn = packetsIn;
+            this.packetsOut = packetsOut;
+            this.transformNanos = transformNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.buckets = buckets;
+        }
+
+        public double seconds(Snapshot since) {
+            return (time - since.time) / 1e9;
+        }
+
+        public long bytesIn(Snapshot since) {
+            return bytesIn - since.bytesIn;
+        }
+
+        public long bytesOut(Snapshot since) {
+            return bytesOut - since.bytesOut;
+        }
+
+        public long packets(Snapshot since) {
+            return packetsIn - since.packetsIn + packetsOut - since.packetsOut;
+        }
+
+        public long allocatedBytes(Snapshot since) {
+            return allocatedBytes - since.allocatedBytes;
+        }
+
+        public long transforms(Snapshot since) {
+            return Log2Histogram.count(Log2Histogram.since(buckets, since.buckets));
+        }
+
+        public long transformNanos(Snapshot since) {
+            return transformNanos - since.transformNanos;
+        }
+
+        /**
+         * @return upper bound of the percentile of the transforms since the other snapshot in nanoseconds
+         */
+        public long percentile(Snapshot since, double percentile) {
+            return Log2Histogram.percentile(Log2Histogram.since(buckets, since.buckets), percentile);
+        }
+    }
+}
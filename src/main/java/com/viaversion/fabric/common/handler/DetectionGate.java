@@ -0,0 +1,181 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.viaversion.fabric.common.autodetect.ProtocolAutoDetector;
+import com.viaversion.fabric.common.autodetect.RttTracker;
+import com.viaversion.fabric.common.provider.AbstractFabricVersionProvider;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import com.viaversion.viaversion.api.protocol.version.VersionProvider;
+import com.viaversion.viaversion.api.type.Types;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Holds the handshake of a client-side login or transfer until the auto-detection of the server version finished, as
+ * Via picks the version while transforming it. Detection can then run while the connection is being opened instead of
+ * before.
+ * <p>
+ * When detection takes longer than the past pings of the server suggest, plus {@link #DEADLINE_MARGIN_MILLIS} for
+ * racing its other addresses, the handshake is sent anyway, and the server version is the one of the client, like
+ * when detection failed. Status pings aren't held, the server list would rather show the server untranslated. If the
+ * channel closes first, the held writes fail right away.
+ */
+public class DetectionGate {
+    public static final long DEADLINE_MARGIN_MILLIS = 500;
+    private static final int LOGIN_INTENT = 2;
+    // Since 1.20.5, a transfer to another server logs in as well
+    private static final int TRANSFER_INTENT = 3;
+    private final UserConnection user;
+    private Queue<HeldWrite> held;
+    private ScheduledFuture<?> deadline;
+    private boolean checked;
+
+    private DetectionGate(UserConnection user) {
+        this.user = user;
+    }
+
+    /**
+     * @return null if the connection doesn't auto-detect versions
+     */
+    public static DetectionGate of(UserConnection user) {
+        return user.isClientSide() ? new DetectionGate(user) : null;
+    }
+
+    /**
+     * Must be called on the event loop for each write before it's transformed.
+     *
+     * @return true if the write was held, it's passed to the writer later
+     */
+    public boolean hold(ChannelHandlerContext ctx, Object msg, ChannelPromise promise, Writer writer) {
+        if (held != null) {
+            held.add(new HeldWrite(msg, promise));
+            return true;
+        }
+        if (checked) return false;
+        checked = true;
+        if (!(msg instanceof ByteBuf)) return false;
+        int intent = peekHandshakeIntent((ByteBuf) msg);
+        if (intent != LOGIN_INTENT && intent != TRANSFER_INTENT) return false;
+        CompletableFuture<ProtocolVersion> detection = pendingDetection();
+        if (detection == null || detection.isDone()) return false;
+
+        held = new ArrayDeque<>();
+        held.add(new HeldWrite(msg, promise));
+        long deadlineMillis = deadlineMillis(ctx.channel().remoteAddress());
+        deadline = ctx.executor().schedule(() -> {
+            Via.getPlatform().getLogger().warning("Auto-detection for " + ctx.channel().remoteAddress()
+                    + " didn't finish in " + deadlineMillis + "ms, connecting without it");
+            release(ctx, writer);
+        }, deadlineMillis, TimeUnit.MILLISECONDS);
+        detection.whenComplete((version, error) -> ctx.executor().execute(() -> release(ctx, writer)));
+        // Listeners of the close future run on the event loop
+        ctx.channel().closeFuture().addListener(future -> discard());
+        return true;
+    }
+
+    private static long deadlineMillis(SocketAddress remote) {
+        long timeout = remote instanceof InetSocketAddress
+                ? ProtocolAutoDetector.detectionTimeoutMillis((InetSocketAddress) remote)
+                : RttTracker.CEILING_MILLIS;
+        return timeout + DEADLINE_MARGIN_MILLIS;
+    }
+
+    private CompletableFuture<ProtocolVersion> pendingDetection() {
+        VersionProvider provider = Via.getManager().getProviders().get(VersionProvider.class);
+        if (!(provider instanceof AbstractFabricVersionProvider)) return null;
+        try {
+            return ((AbstractFabricVersionProvider) provider).pendingAutoDetection(user);
+        } catch (Exception e) {
+            Via.getPlatform().getLogger().log(Level.WARNING, "Couldn't auto detect", e);
+            return null;
+        }
+    }
+
+    private void release(ChannelHandlerContext ctx, Writer writer) {
+        Queue<HeldWrite> writes = held;
+        if (writes == null) return;
+        held = null;
+        deadline.cancel(false);
+        for (HeldWrite write : writes) {
+            try {
+                writer.write(ctx, write.msg, write.promise);
+            } catch (Throwable t) {
+                write.promise.tryFailure(t);
+            }
+        }
+        ctx.flush();
+    }
+
+    private void discard() {
+        Queue<HeldWrite> writes = held;
+        if (writes == null) return;
+        held = null;
+        deadline.cancel(false);
+        ClosedChannelException cause = new ClosedChannelException();
+        for (HeldWrite write : writes) {
+            ReferenceCountUtil.release(write.msg);
+            write.promise.tryFailure(cause);
+        }
+    }
+
+    /**
+     * @return the intent of a serverbound handshake, or -1 if it isn't one
+     */
+    static int peekHandshakeIntent(ByteBuf buf) {
+        if (CommonTransformer.peekPacketId(buf) != 0) return -1;
+        ByteBuf handshake = buf.duplicate();
+        try {
+            Types.VAR_INT.readPrimitive(handshake); // Packet id
+            Types.VAR_INT.readPrimitive(handshake); // Protocol version
+            handshake.skipBytes(Types.VAR_INT.readPrimitive(handshake)); // Address
+            handshake.skipBytes(Short.BYTES); // Port
+            return Types.VAR_INT.readPrimitive(handshake);
+        } catch (IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    public interface Writer {
+        void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception;
+    }
+
+    private static final class HeldWrite {
+        private final Object msg;
+        private final ChannelPromise promise;
+
+        private HeldWrite(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+        }
+    }
+}
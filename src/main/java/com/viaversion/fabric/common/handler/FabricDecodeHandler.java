@@ -17,16 +17,18 @@
  */
 package com.viaversion.fabric.common.handler;
 
+import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.fabric.common.jfr.FlightRecorderEvents;
 import com.viaversion.viaversion.api.Via;
 import com.viaversion.viaversion.api.connection.UserConnection;
 import com.viaversion.viaversion.api.protocol.packet.State;
 import com.viaversion.viaversion.exception.CancelCodecException;
-import com.viaversion.viaversion.exception.CancelDecoderException;
 import com.viaversion.viaversion.exception.InformativeException;
 import com.viaversion.viaversion.util.PipelineUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.MessageToMessageDecoder;
 
 import java.util.List;
@@ -34,37 +36,66 @@ import java.util.List;
 @ChannelHandler.Sharable
 public class FabricDecodeHandler extends MessageToMessageDecoder<ByteBuf> {
     private final UserConnection info;
+    private final CommonTransformer transformer;
+    private final FlightRecorderEvents events = FlightRecorderEvents.get();
+    private final TransformOffloader offloader;
+    private final OrderedTransformQueue queue;
 
     public FabricDecodeHandler(UserConnection info) {
         this.info = info;
+        VFConfig config = VFConfig.getInstance();
+        this.transformer = new CommonTransformer(info, true, config);
+        this.offloader = TransformOffloader.create(config);
+        this.queue = offloader != null ? OrderedTransformQueue.of(info) : null;
     }
 
     public UserConnection getInfo() {
         return info;
     }
 
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().attr(CommonTransformer.USER_CONNECTION).set(info);
+        super.handlerAdded(ctx);
+    }
+
     // https://github.com/ViaVersion/ViaVersion/blob/master/velocity/src/main/java/us/myles/ViaVersion/velocity/handlers/VelocityDecodeHandler.java
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf bytebuf, List<Object> out) throws Exception {
-        if (!info.checkIncomingPacket()) throw CancelDecoderException.generate(null);
-        if (!info.shouldTransformPacket()) {
-            out.add(bytebuf.retain());
+        if (offloader != null && (queue.isBusy() || (info.shouldTransformPacket() && offloader.isHeavy(bytebuf)))) {
+            offload(ctx, bytebuf.retain());
             return;
         }
+        out.add(transformer.transform(ctx, bytebuf));
+    }
 
-        ByteBuf transformedBuf = ctx.alloc().buffer().writeBytes(bytebuf);
-        try {
-            info.transformIncoming(transformedBuf, CancelDecoderException::generate);
-
-            out.add(transformedBuf.retain());
-        } finally {
-            transformedBuf.release();
-        }
+    private void offload(ChannelHandlerContext ctx, ByteBuf bytebuf) {
+        TransformStats.OFFLOADED.increment();
+        queue.submit(offloader.executor(), ctx.channel().eventLoop(), bytebuf.readableBytes(), () -> {
+            try {
+                return transformer.transform(ctx, bytebuf);
+            } finally {
+                bytebuf.release();
+            }
+        }, transformed -> {
+            if (ctx.isRemoved()) {
+                transformed.release();
+                return;
+            }
+            ctx.fireChannelRead(transformed);
+        }, cause -> {
+            try {
+                exceptionCaught(ctx, cause instanceof DecoderException ? cause : new DecoderException(cause));
+            } catch (Exception e) {
+                ctx.fireExceptionCaught(e);
+            }
+        });
+        queue.throttleReads(ctx.channel());
     }
 
-    private void reorder(ChannelHandlerContext ctx) {
+    private boolean reorder(ChannelHandlerContext ctx) {
         int decoderIndex = ctx.pipeline().names().indexOf("decompress");
-        if (decoderIndex == -1) return;
+        if (decoderIndex == -1) return false;
 
         if (decoderIndex > ctx.pipeline().names().indexOf(CommonTransformer.HANDLER_DECODER_NAME)) {
             ChannelHandler encoder = ctx.pipeline().get(CommonTransformer.HANDLER_ENCODER_NAME);
@@ -75,7 +106,9 @@ public class FabricDecodeHandler extends MessageToMessageDecoder<ByteBuf> {
 
             ctx.pipeline().addAfter("compress", CommonTransformer.HANDLER_ENCODER_NAME, encoder);
             ctx.pipeline().addAfter("decompress", CommonTransformer.HANDLER_DECODER_NAME, decoder);
+            return true;
         }
+        return false;
     }
 
     @Override
@@ -99,7 +132,11 @@ public class FabricDecodeHandler extends MessageToMessageDecoder<ByteBuf> {
                 kryptonReorder = true;
         }
         if (evt instanceof PipelineReorderEvent || kryptonReorder) {
-            reorder(ctx);
+            Object event = events.beginReorder(evt.toString());
+            boolean reordered = reorder(ctx);
+            if (event != null) {
+                events.commitReorder(event, reordered);
+            }
         }
         super.userEventTriggered(ctx, evt);
     }
@@ -17,13 +17,15 @@
  */
 package com.viaversion.fabric.common.handler;
 
+import com.viaversion.fabric.common.config.VFConfig;
 import com.viaversion.viaversion.api.connection.UserConnection;
 import com.viaversion.viaversion.exception.CancelCodecException;
-import com.viaversion.viaversion.exception.CancelEncoderException;
 import com.viaversion.viaversion.util.PipelineUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToMessageEncoder;
 
 import java.util.List;
@@ -31,27 +33,59 @@ import java.util.List;
 @ChannelHandler.Sharable
 public class FabricEncodeHandler extends MessageToMessageEncoder<ByteBuf> {
     private final UserConnection info;
+    private final CommonTransformer transformer;
+    private final TransformOffloader offloader;
+    private final OrderedTransformQueue queue;
+    private final DetectionGate detectionGate;
 
     public FabricEncodeHandler(UserConnection info) {
         this.info = info;
+        VFConfig config = VFConfig.getInstance();
+        this.transformer = new CommonTransformer(info, false, config);
+        this.offloader = TransformOffloader.create(config);
+        this.queue = offloader != null ? OrderedTransformQueue.of(info) : null;
+        this.detectionGate = DetectionGate.of(info);
     }
 
     @Override
-    protected void encode(final ChannelHandlerContext ctx, ByteBuf bytebuf, List<Object> out) throws Exception {
-        if (!info.checkOutgoingPacket()) throw CancelEncoderException.generate(null);
-        if (!info.shouldTransformPacket()) {
-            out.add(bytebuf.retain());
-            return;
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (detectionGate != null && detectionGate.hold(ctx, msg, promise, this::writeNow)) return;
+        writeNow(ctx, msg, promise);
+    }
+
+    private void writeNow(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (offloader != null) {
+            if (msg instanceof ByteBuf
+                    && (queue.isBusy() || (info.shouldTransformPacket() && offloader.isHeavy((ByteBuf) msg)))) {
+                offload(ctx, (ByteBuf) msg, promise);
+                return;
+            }
+            if (queue.isBusy()) {
+                // Other messages aren't transformed, but they mustn't overtake the queued packets
+                queue.submit(offloader.executor(), ctx.channel().eventLoop(), 0, () -> msg,
+                        queued -> ctx.writeAndFlush(queued, promise), promise::tryFailure);
+                return;
+            }
         }
+        super.write(ctx, msg, promise);
+    }
 
-        ByteBuf transformedBuf = ctx.alloc().buffer().writeBytes(bytebuf);
-        try {
-            info.transformOutgoing(transformedBuf, CancelEncoderException::generate);
+    @Override
+    protected void encode(final ChannelHandlerContext ctx, ByteBuf bytebuf, List<Object> out) throws Exception {
+        out.add(transformer.transform(ctx, bytebuf));
+    }
 
-            out.add(transformedBuf.retain());
-        } finally {
-            transformedBuf.release();
-        }
+    private void offload(ChannelHandlerContext ctx, ByteBuf bytebuf, ChannelPromise promise) {
+        TransformStats.OFFLOADED.increment();
+        queue.submit(offloader.executor(), ctx.channel().eventLoop(), bytebuf.readableBytes(), () -> {
+            try {
+                return transformer.transform(ctx, bytebuf);
+            } finally {
+                bytebuf.release();
+            }
+        }, transformed -> ctx.writeAndFlush(transformed, promise),
+                cause -> promise.tryFailure(cause instanceof EncoderException ? cause : new EncoderException(cause)));
+        queue.throttleWrites(ctx.channel());
     }
 
     @Override
@@ -0,0 +1,94 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram with a bucket per power of two, bucket i counts values which are less than 2^i. The last bucket also
+ * counts everything bigger. Recording is lock-free, so it's used from the network threads directly.
+ */
+public class Log2Histogram {
+    private final AtomicLongArray buckets;
+
+    public Log2Histogram(int buckets) {
+        this.buckets = new AtomicLongArray(buckets);
+    }
+
+    public void record(long value) {
+        buckets.incrementAndGet(Math.min(buckets.length() - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, value))));
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    public long[] snapshot() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long percentile(double percentile) {
+        return percentile(snapshot(), percentile);
+    }
+
+    public static long count(long[] buckets) {
+        long count = 0;
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * @return upper bound of the percentile, precise to a power of two, or 0 if nothing was recorded
+     */
+    public static long percentile(long[] buckets, double percentile) {
+        long threshold = (long) Math.ceil(count(buckets) * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= threshold && seen != 0) return 1L << i;
+        }
+        return 0;
+    }
+
+    /**
+     * @return the counts recorded between two snapshots
+     */
+    public static long[] since(long[] buckets, long[] earlier) {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i] - earlier[i];
+        }
+        return counts;
+    }
+}
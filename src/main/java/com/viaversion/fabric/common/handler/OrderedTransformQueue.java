@@ -0,0 +1,173 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.viaversion.viaversion.api.connection.StorableObject;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.EventLoop;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs a connection's offloaded transforms one at a time on the worker pool and hands the results back to the
+ * event loop in submission order. As long as something is queued, every other packet of the connection has to be
+ * queued too, which keeps the output order and never lets ViaVersion touch the connection from two threads.
+ * <p>
+ * Once {@link #HIGH_WATER_MARK} bytes are queued, the connection stops reading and is marked unwritable until the
+ * queue drained below {@link #LOW_WATER_MARK}, so a flooding connection can't queue buffers without bound.
+ */
+public class OrderedTransformQueue implements StorableObject {
+    public static final int HIGH_WATER_MARK = 4 * 1024 * 1024;
+    public static final int LOW_WATER_MARK = 1024 * 1024;
+    // TrafficShapingHandler uses the indices 1 to 3
+    static final int WRITABILITY_INDEX = 8;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile Executor executor;
+    // Only accessed from the event loop
+    private int pending;
+    private long pendingBytes;
+    private Channel pausedReads;
+    private Channel pausedWrites;
+
+    /**
+     * @return the queue shared by both handlers of the connection
+     */
+    public static synchronized OrderedTransformQueue of(UserConnection user) {
+        OrderedTransformQueue queue = user.get(OrderedTransformQueue.class);
+        if (queue == null) {
+            queue = new OrderedTransformQueue();
+            user.put(queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Must be called from the event loop.
+     */
+    public boolean isBusy() {
+        return pending != 0;
+    }
+
+    /**
+     * Must be called from the event loop.
+     */
+    public boolean isFull() {
+        return pendingBytes >= HIGH_WATER_MARK;
+    }
+
+    /**
+     * Must be called from the event loop. The callbacks are run on the event loop in submission order.
+     *
+     * @param size bytes held until the task completed, counted against the water marks
+     */
+    public <T> void submit(Executor executor, EventLoop eventLoop, int size, Callable<T> work, Consumer<T> onResult, Consumer<Throwable> onError) {
+        this.executor = executor;
+        pending++;
+        pendingBytes += size;
+        tasks.add(() -> {
+            T result = null;
+            Throwable error = null;
+            try {
+                result = work.call();
+            } catch (Throwable t) {
+                error = t;
+            }
+            T finalResult = result;
+            Throwable finalError = error;
+            eventLoop.execute(() -> {
+                pending--;
+                pendingBytes -= size;
+                try {
+                    if (finalError != null) {
+                        onError.accept(finalError);
+                    } else {
+                        onResult.accept(finalResult);
+                    }
+                } finally {
+                    resumeIfDrained();
+                }
+            });
+        });
+        scheduleDrain();
+    }
+
+    /**
+     * Stops reading from the channel while the queue is full, must be called from the event loop after submitting.
+     */
+    public void throttleReads(Channel channel) {
+        if (!isFull() || pausedReads != null || !channel.config().isAutoRead()) return;
+        channel.config().setAutoRead(false);
+        pausedReads = channel;
+    }
+
+    /**
+     * Marks the channel unwritable while the queue is full, must be called from the event loop after submitting.
+     */
+    public void throttleWrites(Channel channel) {
+        if (!isFull() || pausedWrites != null) return;
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        if (buffer == null) return; // Closed
+        buffer.setUserDefinedWritability(WRITABILITY_INDEX, false);
+        pausedWrites = channel;
+    }
+
+    private void resumeIfDrained() {
+        if (pendingBytes >= LOW_WATER_MARK) return;
+        if (pausedReads != null) {
+            pausedReads.config().setAutoRead(true);
+            pausedReads = null;
+        }
+        if (pausedWrites != null) {
+            ChannelOutboundBuffer buffer = pausedWrites.unsafe().outboundBuffer();
+            if (buffer != null) buffer.setUserDefinedWritability(WRITABILITY_INDEX, true);
+            pausedWrites = null;
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!tasks.isEmpty() && draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            draining.set(false);
+        }
+        // A task might have been added after the last poll
+        scheduleDrain();
+    }
+
+    @Override
+    public boolean clearOnServerSwitch() {
+        return false;
+    }
+}
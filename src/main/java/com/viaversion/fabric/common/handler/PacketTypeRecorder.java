@@ -0,0 +1,100 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Map;
+
+/**
+ * Measures the transforms of one handler and attributes them to the direction, state, packet id and the version on
+ * the other side of the translation. Must only be used from one thread at a time.
+ *
+ * @param <E> the entry a measurement is added to
+ */
+public abstract class PacketTypeRecorder<E> {
+    private final Long2ObjectOpenHashMap<E> cache = new Long2ObjectOpenHashMap<>();
+    private final Map<Long, E> entries;
+    private final UserConnection user;
+    private final Direction direction;
+    private State state;
+    private int packetId;
+    private long start;
+
+    /**
+     * @param entries the entries shared by all recorders, keyed by {@link #key(Direction, State, int, int)}
+     */
+    protected PacketTypeRecorder(UserConnection user, boolean incoming, Map<Long, E> entries) {
+        this.user = user;
+        this.direction = incoming == user.isClientSide() ? Direction.CLIENTBOUND : Direction.SERVERBOUND;
+        this.entries = entries;
+    }
+
+    static long key(Direction direction, State state, int packetId, int version) {
+        return ((long) direction.ordinal() << 52) | ((long) state.ordinal() << 48)
+                | ((long) (packetId & 0xFFFF) << 32) | (version & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Must be called before the packet is transformed, as the id and state might change.
+     */
+    public void start(ByteBuf buf) {
+        ProtocolInfo info = user.getProtocolInfo();
+        if (!isEnabled() || info == null) {
+            state = null;
+            return;
+        }
+        state = direction == Direction.SERVERBOUND ? info.getServerState() : info.getClientState();
+        packetId = CommonTransformer.peekPacketId(buf);
+        start = measure();
+    }
+
+    public void stop() {
+        if (state == null) return;
+        long value = measure() - start;
+        ProtocolInfo info = user.getProtocolInfo();
+        ProtocolVersion target = user.isClientSide() ? info.serverProtocolVersion() : info.protocolVersion();
+        long key = key(direction, state, packetId, target.getVersion());
+        E entry = cache.get(key);
+        if (entry == null) {
+            State state = this.state;
+            int packetId = this.packetId;
+            entry = entries.computeIfAbsent(key, k -> create(direction, state, packetId, target));
+            cache.put(key, entry);
+        }
+        record(entry, value);
+        state = null;
+    }
+
+    protected abstract boolean isEnabled();
+
+    /**
+     * @return the current value of what's measured, the difference between start and stop is recorded
+     */
+    protected abstract long measure();
+
+    protected abstract E create(Direction direction, State state, int packetId, ProtocolVersion target);
+
+    protected abstract void record(E entry, long value);
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.AbstractProtocol;
+import com.viaversion.viaversion.api.protocol.Protocol;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which play packet ids no protocol in a connection's pipeline touches, so they can skip
+ * ViaVersion's transformation entirely.
+ */
+public class PassthroughFilter {
+    private static final int MAX_PACKET_ID = 0xFF;
+    private static final BitSet NONE = new BitSet();
+    // Protocol instances are singletons, so pipelines with the same path share the same id set
+    private static final Map<Key, BitSet> CACHE = new ConcurrentHashMap<>();
+    private final UserConnection user;
+    private final Direction direction;
+    private State lastState;
+    private int lastPipeCount = -1;
+    private Protocol lastPipe;
+    private BitSet passthrough = NONE;
+
+    public PassthroughFilter(UserConnection user, boolean incoming) {
+        this.user = user;
+        this.direction = incoming == user.isClientSide() ? Direction.CLIENTBOUND : Direction.SERVERBOUND;
+    }
+
+    public boolean canSkip(ByteBuf buf) {
+        ProtocolInfo info = user.getProtocolInfo();
+        if (info == null || Via.getManager().debugHandler().enabled()) return false;
+        State state = direction == Direction.SERVERBOUND ? info.getServerState() : info.getClientState();
+        if (state != State.PLAY) return false;
+
+        List<Protocol> pipes = info.getPipeline().pipes();
+        int pipeCount = pipes.size();
+        Protocol lastPipe = pipeCount == 0 ? null : pipes.get(pipeCount - 1);
+        if (state != lastState || pipeCount != lastPipeCount || lastPipe != this.lastPipe) {
+            List<Protocol> path = new ArrayList<>(pipes);
+            passthrough = CACHE.computeIfAbsent(new Key(path, direction), PassthroughFilter::compute);
+            this.lastState = state;
+            this.lastPipeCount = pipeCount;
+            this.lastPipe = lastPipe;
+        }
+
+        int id = CommonTransformer.peekPacketId(buf);
+        return id >= 0 && passthrough.get(id);
+    }
+
+    private static BitSet compute(Key key) {
+        for (Protocol protocol : key.path) {
+            // Base protocols only override transform for the handshake, other protocols may do anything in it
+            if (!protocol.isBaseProtocol() && overridesTransform(protocol)) return NONE;
+        }
+        BitSet ids = new BitSet(MAX_PACKET_ID + 1);
+        for (int id = 0; id <= MAX_PACKET_ID; id++) {
+            boolean registered = false;
+            for (Protocol protocol : key.path) {
+                if (key.direction == Direction.CLIENTBOUND
+                        ? protocol.hasRegisteredClientbound(State.PLAY, id)
+                        : protocol.hasRegisteredServerbound(State.PLAY, id)) {
+                    registered = true;
+                    break;
+                }
+            }
+            if (!registered) ids.set(id);
+        }
+        return ids;
+    }
+
+    private static boolean overridesTransform(Protocol protocol) {
+        try {
+            return protocol.getClass().getMethod("transform", Direction.class, State.class, PacketWrapper.class)
+                    .getDeclaringClass() != AbstractProtocol.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    private static final class Key {
+        private final List<Protocol> path;
+        private final Direction direction;
+
+        private Key(List<Protocol> path, Direction direction) {
+            this.path = path;
+            this.direction = direction;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return direction == key.direction && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, direction);
+        }
+    }
+}
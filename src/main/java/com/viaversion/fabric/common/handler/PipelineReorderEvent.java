@@ -18,4 +18,8 @@
 package com.viaversion.fabric.common.handler;
 
 public class PipelineReorderEvent {
+    @Override
+    public String toString() {
+        return "PIPELINE_REORDER";
+    }
 }
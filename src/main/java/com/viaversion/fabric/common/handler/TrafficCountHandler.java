@@ -0,0 +1,52 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Takes the place of a detached Via handler to keep counting the traffic of the connection for the debug HUD. If the
+ * handlers were detached before compression was enabled, the counted sizes are the compressed ones.
+ */
+public class TrafficCountHandler extends ChannelDuplexHandler {
+    private final ConnectionStats stats;
+    private final boolean incoming;
+
+    /**
+     * @param incoming true to count the packets read, false to count the packets written
+     */
+    public TrafficCountHandler(ConnectionStats stats, boolean incoming) {
+        this.stats = stats;
+        this.incoming = incoming;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (incoming && msg instanceof ByteBuf) stats.received(((ByteBuf) msg).readableBytes());
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!incoming && msg instanceof ByteBuf) stats.sent(((ByteBuf) msg).readableBytes());
+        super.write(ctx, msg, promise);
+    }
+}
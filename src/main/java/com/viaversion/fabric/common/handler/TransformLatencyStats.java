@@ -0,0 +1,149 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transform latency histograms per direction, state, packet id and the version on the other side of the translation.
+ */
+public class TransformLatencyStats {
+    private static final Map<Long, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        TransformLatencyStats.enabled = enabled;
+    }
+
+    public static void reset() {
+        // Recorders keep references to the histograms, so they're cleared instead of removed
+        HISTOGRAMS.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * @return the histograms with the highest total transform time first
+     */
+    public static List<Histogram> top(int count) {
+        List<Histogram> histograms = new ArrayList<>();
+        for (Histogram histogram : HISTOGRAMS.values()) {
+            if (histogram.count() != 0) histograms.add(histogram);
+        }
+        histograms.sort(Comparator.comparingLong(Histogram::totalNanos).reversed());
+        return histograms.subList(0, Math.min(count, histograms.size()));
+    }
+
+    /**
+     * Records the transforms of one handler, must only be used from one thread at a time.
+     */
+    public static class Recorder extends PacketTypeRecorder<Histogram> {
+        public Recorder(UserConnection user, boolean incoming) {
+            super(user, incoming, HISTOGRAMS);
+        }
+
+        @Override
+        protected boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        protected long measure() {
+            return System.nanoTime();
+        }
+
+        @Override
+        protected Histogram create(Direction direction, State state, int packetId, ProtocolVersion target) {
+            return new Histogram(direction, state, packetId, target);
+        }
+
+        @Override
+        protected void record(Histogram histogram, long nanos) {
+            histogram.record(nanos);
+        }
+    }
+
+    public static class Histogram {
+        private final Log2Histogram nanos = new Log2Histogram(64);
+        private final LongAdder totalNanos = new LongAdder();
+        private final Direction direction;
+        private final State state;
+        private final int packetId;
+        private final ProtocolVersion target;
+
+        private Histogram(Direction direction, State state, int packetId, ProtocolVersion target) {
+            this.direction = direction;
+            this.state = state;
+            this.packetId = packetId;
+            this.target = target;
+        }
+
+        private void record(long nanos) {
+            this.nanos.record(nanos);
+            totalNanos.add(nanos);
+        }
+
+        private void reset() {
+            nanos.reset();
+            totalNanos.reset();
+        }
+
+        public long count() {
+            return nanos.count();
+        }
+
+        public long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * @return upper bound of the percentile in nanoseconds, precise to a power of two
+         */
+        public long percentile(double percentile) {
+            return nanos.percentile(percentile);
+        }
+
+        public Direction direction() {
+            return direction;
+        }
+
+        public State state() {
+            return state;
+        }
+
+        public int packetId() {
+            return packetId;
+        }
+
+        public ProtocolVersion target() {
+            return target;
+        }
+    }
+}
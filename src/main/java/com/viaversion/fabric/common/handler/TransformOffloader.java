@@ -0,0 +1,74 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.viaversion.fabric.common.config.VFConfig;
+import io.netty.buffer.ByteBuf;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decides which packets are heavy enough to be transformed on a worker thread instead of the network thread.
+ */
+public class TransformOffloader {
+    private static ExecutorService executor;
+    private final int sizeThreshold;
+    private final BitSet packetIds;
+
+    private TransformOffloader(int sizeThreshold, BitSet packetIds) {
+        this.sizeThreshold = sizeThreshold;
+        this.packetIds = packetIds;
+    }
+
+    /**
+     * @return the offloader for the config, or null if offloading is disabled
+     */
+    public static TransformOffloader create(VFConfig config) {
+        if (config == null) return null;
+        int sizeThreshold = config.getOffloadTransformThreshold();
+        BitSet packetIds = new BitSet();
+        for (int id : config.getOffloadTransformPacketIds()) {
+            if (id >= 0) packetIds.set(id);
+        }
+        if (sizeThreshold < 0 && packetIds.isEmpty()) return null;
+        executor(config.getOffloadTransformThreads());
+        return new TransformOffloader(sizeThreshold, packetIds);
+    }
+
+    private static synchronized ExecutorService executor(int threads) {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactoryBuilder()
+                    .setDaemon(true).setNameFormat("ViaFabric-Transform-%d").build());
+        }
+        return executor;
+    }
+
+    public boolean isHeavy(ByteBuf buf) {
+        if (sizeThreshold >= 0 && buf.readableBytes() >= sizeThreshold) return true;
+        if (packetIds.isEmpty()) return false;
+        int id = CommonTransformer.peekPacketId(buf);
+        return id >= 0 && packetIds.get(id);
+    }
+
+    ExecutorService executor() {
+        return executor;
+    }
+}
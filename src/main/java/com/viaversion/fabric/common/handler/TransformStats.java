@@ -0,0 +1,38 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class TransformStats {
+    public static final LongAdder IN_PLACE = new LongAdder();
+    public static final LongAdder COPIED = new LongAdder();
+    public static final LongAdder PASSTHROUGH = new LongAdder();
+    public static final LongAdder SIZE_PREDICTED = new LongAdder();
+    public static final LongAdder SIZE_RESIZED = new LongAdder();
+    public static final LongAdder OFFLOADED = new LongAdder();
+
+    public static void reset() {
+        IN_PLACE.reset();
+        COPIED.reset();
+        PASSTHROUGH.reset();
+        SIZE_PREDICTED.reset();
+        SIZE_RESIZED.reset();
+        OFFLOADED.reset();
+    }
+}
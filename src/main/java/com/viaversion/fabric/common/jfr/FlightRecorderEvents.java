@@ -0,0 +1,89 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.jfr;
+
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import io.netty.buffer.ByteBuf;
+
+import java.net.SocketAddress;
+
+/**
+ * Emits ViaFabric events to Java Flight Recorder. The events themselves are compiled against Java 11 in the jfr source
+ * set and only loaded when jdk.jfr is available, otherwise every method here is a no-op.
+ * <p>
+ * The begin methods return null unless a recording has the event enabled, so callers only pay for a null check.
+ */
+public class FlightRecorderEvents {
+    private static final FlightRecorderEvents INSTANCE = load();
+
+    protected FlightRecorderEvents() {
+    }
+
+    public static FlightRecorderEvents get() {
+        return INSTANCE;
+    }
+
+    private static FlightRecorderEvents load() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (FlightRecorderEvents) Class.forName("com.viaversion.fabric.common.jfr.JfrEvents")
+                    .getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new FlightRecorderEvents();
+        }
+    }
+
+    /**
+     * Must be called before the packet is transformed, as the id and state might change.
+     */
+    public Object beginTransform(UserConnection user, boolean incoming, ByteBuf buf) {
+        return null;
+    }
+
+    public void commitTransform(Object event, ByteBuf transformed) {
+    }
+
+    public boolean isCancelEnabled() {
+        return false;
+    }
+
+    public void cancel(UserConnection user, boolean incoming, int packetId, int size) {
+    }
+
+    public Object beginReorder(String trigger) {
+        return null;
+    }
+
+    public void commitReorder(Object event, boolean reordered) {
+    }
+
+    public Object beginDetect(SocketAddress address) {
+        return null;
+    }
+
+    public void commitDetect(Object event, ProtocolVersion version, Throwable error) {
+    }
+
+    public Object beginClosestProtocol(SocketAddress address, ProtocolVersion clientVersion) {
+        return null;
+    }
+
+    public void commitClosestProtocol(Object event, ProtocolVersion serverVersion, boolean blocked, boolean supported) {
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.metrics;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpServer;
+import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.fabric.common.handler.AllocationProfiler;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes {@link ViaFabricMetrics} in the Prometheus text exposition format.
+ */
+public class PrometheusExporter {
+    public static void start(ViaFabricMetrics metrics, VFConfig config, Logger logger) {
+        String file = config.getMetricsPrometheusFile();
+        int port = config.getMetricsPrometheusPort();
+        if (file.isEmpty() && port == -1) return;
+
+        // Threads created from a daemon thread are daemons too, this keeps the http server from blocking shutdown
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat("ViaFabric-Metrics").build());
+        if (!file.isEmpty()) {
+            Path path = FabricLoader.getInstance().getConfigDir().resolve("ViaFabric").resolve(file);
+            int interval = Math.max(1, config.getMetricsPrometheusInterval());
+            executor.scheduleAtFixedRate(() -> {
+                try {
+                    writeFile(metrics, path);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Couldn't write metrics to " + path, e);
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
+        if (port != -1) {
+            executor.execute(() -> {
+                try {
+                    HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                    server.createContext("/metrics", exchange -> {
+                        byte[] body = format(metrics).getBytes(StandardCharsets.UTF_8);
+                        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                        exchange.sendResponseHeaders(200, body.length);
+                        try (OutputStream out = exchange.getResponseBody()) {
+                            out.write(body);
+                        }
+                    });
+                    server.setExecutor(executor);
+                    server.start();
+                    logger.info("Serving ViaFabric metrics on " + server.getAddress());
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Couldn't serve metrics on port " + port, e);
+                }
+            });
+        }
+    }
+
+    private static void writeFile(ViaFabricMetrics metrics, Path path) throws IOException {
+        // Replace the file atomically so scrapers never see a partial write
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, format(metrics).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static String format(ViaFabricMetrics metrics) {
+        StringBuilder out = new StringBuilder();
+        header(out, "viafabric_connections", "gauge", "Connections per client version");
+        for (Map.Entry<String, Integer> entry : metrics.getConnectionsByClientVersion().entrySet()) {
+            sample(out, "viafabric_connections", "client_version", entry.getKey(), entry.getValue());
+        }
+
+        header(out, "viafabric_packets_translated_total", "counter", "Packets translated");
+        directions(out, "viafabric_packets_translated_total", metrics.serverbound().getPackets(), metrics.clientbound().getPackets());
+        header(out, "viafabric_bytes_in_total", "counter", "Bytes before translation");
+        directions(out, "viafabric_bytes_in_total", metrics.serverbound().getBytesIn(), metrics.clientbound().getBytesIn());
+        header(out, "viafabric_bytes_out_total", "counter", "Bytes after translation");
+        directions(out, "viafabric_bytes_out_total", metrics.serverbound().getBytesOut(), metrics.clientbound().getBytesOut());
+        header(out, "viafabric_transform_seconds_total", "counter", "Time spent translating packets");
+        directions(out, "viafabric_transform_seconds_total", metrics.serverbound().getTransformNanos() / 1e9,
+                metrics.clientbound().getTransformNanos() / 1e9);
+        header(out, "viafabric_packets_cancelled_total", "counter", "Packets cancelled while translating");
+        directions(out, "viafabric_packets_cancelled_total", metrics.serverbound().getCancelled(), metrics.clientbound().getCancelled());
+        if (AllocationProfiler.isSupported()) {
+            header(out, "viafabric_transform_allocated_bytes_total", "counter", "Heap allocated while translating packets");
+            directions(out, "viafabric_transform_allocated_bytes_total", metrics.serverbound().getAllocatedBytes(),
+                    metrics.clientbound().getAllocatedBytes());
+        }
+
+        header(out, "viafabric_autodetect_lookups_total", "counter", "Connections looking up the auto detected server version");
+        sample(out, "viafabric_autodetect_lookups_total", "result", "hit", metrics.getAutoDetectHits());
+        sample(out, "viafabric_autodetect_lookups_total", "result", "miss", metrics.getAutoDetectMisses());
+        header(out, "viafabric_autodetect_pings_total", "counter", "Status pings sent to detect a server version");
+        sample(out, "viafabric_autodetect_pings_total", "result", "success", metrics.getDetectPingSuccesses());
+        sample(out, "viafabric_autodetect_pings_total", "result", "failure", metrics.getDetectPingFailures());
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void directions(StringBuilder out, String name, Number serverbound, Number clientbound) {
+        sample(out, name, "direction", "serverbound", serverbound);
+        sample(out, name, "direction", "clientbound", clientbound);
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, Number sample) {
+        out.append(name).append('{').append(label).append("=\"")
+                .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                .append("\"} ").append(sample).append('\n');
+    }
+}
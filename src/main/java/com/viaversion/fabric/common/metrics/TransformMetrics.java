@@ -0,0 +1,92 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.metrics;
+
+import com.viaversion.fabric.common.handler.AllocationProfiler;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the packets translated in one direction.
+ */
+public class TransformMetrics implements TransformMetricsMXBean {
+    private final Direction direction;
+    private final LongAdder packets = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder transformNanos = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    TransformMetrics(Direction direction) {
+        this.direction = direction;
+    }
+
+    public void transformed(int sizeIn, int sizeOut, long nanos) {
+        packets.increment();
+        bytesIn.add(sizeIn);
+        bytesOut.add(sizeOut);
+        transformNanos.add(nanos);
+    }
+
+    public void cancelled() {
+        cancelled.increment();
+    }
+
+    /**
+     * @param bytes heap allocated by the thread during a transform, see {@link AllocationProfiler}
+     */
+    public void allocated(long bytes) {
+        allocatedBytes.add(bytes);
+    }
+
+    public Direction direction() {
+        return direction;
+    }
+
+    @Override
+    public long getPackets() {
+        return packets.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getTransformNanos() {
+        return transformNanos.sum();
+    }
+
+    @Override
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.metrics;
+
+import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Translation metrics, only created when enabled in the config. Callers keep the instance from {@link #get()} and skip
+ * all bookkeeping when it's null.
+ */
+public class ViaFabricMetrics implements ViaFabricMetricsMXBean {
+    private static volatile ViaFabricMetrics instance;
+    private final TransformMetrics serverbound = new TransformMetrics(Direction.SERVERBOUND);
+    private final TransformMetrics clientbound = new TransformMetrics(Direction.CLIENTBOUND);
+    private final LongAdder autoDetectHits = new LongAdder();
+    private final LongAdder autoDetectMisses = new LongAdder();
+    private final LongAdder detectPingSuccesses = new LongAdder();
+    private final LongAdder detectPingFailures = new LongAdder();
+
+    public static ViaFabricMetrics get() {
+        return instance;
+    }
+
+    /**
+     * @return the counters for the packets a handler translates, or null if metrics are disabled
+     */
+    public static TransformMetrics transforms(UserConnection user, boolean incoming) {
+        ViaFabricMetrics metrics = instance;
+        if (metrics == null) return null;
+        return incoming == user.isClientSide() ? metrics.clientbound : metrics.serverbound;
+    }
+
+    public static synchronized void start(VFConfig config, Logger logger) {
+        if (instance != null || !config.isMetricsEnabled()) return;
+        ViaFabricMetrics metrics = new ViaFabricMetrics();
+        metrics.registerMBeans(logger);
+        PrometheusExporter.start(metrics, config, logger);
+        instance = metrics;
+    }
+
+    private void registerMBeans(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName("com.viaversion.fabric:type=Metrics"));
+            server.registerMBean(serverbound, new ObjectName("com.viaversion.fabric:type=Transforms,direction=serverbound"));
+            server.registerMBean(clientbound, new ObjectName("com.viaversion.fabric:type=Transforms,direction=clientbound"));
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Couldn't register ViaFabric MBeans", e);
+        }
+    }
+
+    public TransformMetrics serverbound() {
+        return serverbound;
+    }
+
+    public TransformMetrics clientbound() {
+        return clientbound;
+    }
+
+    public void autoDetectLookup(boolean hit) {
+        if (hit) {
+            autoDetectHits.increment();
+        } else {
+            autoDetectMisses.increment();
+        }
+    }
+
+    public void detectPing(boolean success) {
+        if (success) {
+            detectPingSuccesses.increment();
+        } else {
+            detectPingFailures.increment();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> getConnectionsByClientVersion() {
+        Map<String, Integer> connections = new TreeMap<>();
+        for (UserConnection user : Via.getManager().getConnectionManager().getConnections()) {
+            ProtocolInfo info = user.getProtocolInfo();
+            if (info == null) continue;
+            connections.merge(info.protocolVersion().getName(), 1, Integer::sum);
+        }
+        return connections;
+    }
+
+    @Override
+    public long getAutoDetectHits() {
+        return autoDetectHits.sum();
+    }
+
+    @Override
+    public long getAutoDetectMisses() {
+        return autoDetectMisses.sum();
+    }
+
+    @Override
+    public long getDetectPingSuccesses() {
+        return detectPingSuccesses.sum();
+    }
+
+    @Override
+    public long getDetectPingFailures() {
+        return detectPingFailures.sum();
+    }
+}
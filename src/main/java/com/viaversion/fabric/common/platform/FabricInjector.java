@@ -17,7 +17,10 @@
  */
 package com.viaversion.fabric.common.platform;
 
+import com.google.common.cache.CacheStats;
+import com.viaversion.fabric.common.handler.BroadcastTransformCache;
 import com.viaversion.fabric.common.handler.CommonTransformer;
+import com.viaversion.fabric.common.handler.TransformStats;
 import com.viaversion.viaversion.api.Via;
 import com.viaversion.viaversion.api.platform.ViaInjector;
 import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
@@ -53,7 +56,17 @@ public class FabricInjector implements ViaInjector {
 
     @Override
     public JsonObject getDump() {
-        return new JsonObject();
+        JsonObject dump = new JsonObject();
+        dump.addProperty("transformedInPlace", TransformStats.IN_PLACE.sum());
+        dump.addProperty("transformedCopied", TransformStats.COPIED.sum());
+        dump.addProperty("passedThrough", TransformStats.PASSTHROUGH.sum());
+        dump.addProperty("offloaded", TransformStats.OFFLOADED.sum());
+        CacheStats cacheStats = BroadcastTransformCache.stats();
+        if (cacheStats != null) {
+            dump.addProperty("broadcastCacheHits", cacheStats.hitCount());
+            dump.addProperty("broadcastCacheMisses", cacheStats.missCount());
+        }
+        return dump;
     }
 
     @Override
@@ -17,6 +17,7 @@
  */
 package com.viaversion.fabric.common.provider;
 
+import com.viaversion.fabric.common.config.VFConfig;
 import com.viaversion.fabric.common.platform.FabricViaAPI;
 import com.viaversion.fabric.common.platform.FabricViaConfig;
 import com.viaversion.fabric.common.platform.NativeVersionProvider;
@@ -136,6 +137,8 @@ public abstract class AbstractFabricPlatform implements ViaPlatform<UserConnecti
 
     @Override
     public void onReload() {
+        VFConfig viaFabricConfig = VFConfig.getInstance();
+        if (viaFabricConfig != null) viaFabricConfig.reload();
     }
 
     @Override
@@ -17,9 +17,10 @@
  */
 package com.viaversion.fabric.common.provider;
 
-import com.google.common.primitives.Ints;
 import com.viaversion.fabric.common.AddressParser;
 import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.fabric.common.jfr.FlightRecorderEvents;
+import com.viaversion.fabric.common.metrics.ViaFabricMetrics;
 import com.viaversion.fabric.common.platform.NativeVersionProvider;
 import com.viaversion.fabric.common.util.ProtocolUtils;
 import com.viaversion.viaversion.api.Via;
@@ -45,7 +46,6 @@ import java.net.SocketAddress;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
 
 public abstract class AbstractFabricVersionProvider extends BaseVersionProvider {
     private int[] multiconnectSupportedVersions = null;
@@ -91,6 +91,7 @@ public abstract class AbstractFabricVersionProvider extends BaseVersionProvider
 
             int serverVer = getConfig().getClientSideVersion();
             SocketAddress addr = connection.getChannel().remoteAddress();
+            Object event = FlightRecorderEvents.get().beginClosestProtocol(addr, info.protocolVersion());
 
             if (addr instanceof InetSocketAddress) {
                 AddressParser parser = new AddressParser();
@@ -104,6 +105,8 @@ public abstract class AbstractFabricVersionProvider extends BaseVersionProvider
                         // Hope protocol was autodetected
                         ProtocolVersion autoVer =
                                 detectVersion((InetSocketAddress) addr).getNow(null);
+                        ViaFabricMetrics metrics = ViaFabricMetrics.get();
+                        if (metrics != null) metrics.autoDetectLookup(autoVer != null);
                         if (autoVer != null) {
                             serverVer = autoVer.getVersion();
                         }
@@ -122,7 +125,11 @@ public abstract class AbstractFabricVersionProvider extends BaseVersionProvider
 
             if (blocked || !supported) serverVer = info.getProtocolVersion();
 
-            return ProtocolVersion.getProtocol(serverVer);
+            ProtocolVersion closest = ProtocolVersion.getProtocol(serverVer);
+            if (event != null) {
+                FlightRecorderEvents.get().commitClosestProtocol(event, closest, blocked, supported);
+            }
+            return closest;
         }
         NativeVersionProvider natProvider = Via.getManager().getProviders().get(NativeVersionProvider.class);
         if (natProvider != null) {
@@ -131,11 +138,32 @@ public abstract class AbstractFabricVersionProvider extends BaseVersionProvider
         return super.getClosestServerProtocol(connection);
     }
 
+    /**
+     * Returns the auto-detection {@link #getClosestServerProtocol(UserConnection)} will use for the connection, so
+     * the handshake can wait for it.
+     *
+     * @return null if the version of the connection isn't auto-detected
+     */
+    public CompletableFuture<ProtocolVersion> pendingAutoDetection(UserConnection connection) {
+        if (!connection.isClientSide() || !getConfig().isClientSideEnabled()) return null;
+        SocketAddress addr = connection.getChannel().remoteAddress();
+        if (!(addr instanceof InetSocketAddress)) return null;
+        Integer addrVersion = new AddressParser().parse(((InetSocketAddress) addr).getHostName()).protocol;
+        int serverVer = addrVersion != null ? addrVersion : getConfig().getClientSideVersion();
+        return serverVer == -2 ? detectVersion((InetSocketAddress) addr) : null;
+    }
+
     private boolean checkAddressBlocked(SocketAddress addr) {
-        return addr instanceof InetSocketAddress && (isDisabled(((InetSocketAddress) addr).getHostString())
-                || ((((InetSocketAddress) addr).getAddress() != null) &&
-                (isDisabled(((InetSocketAddress) addr).getAddress().getHostAddress())
-                        || isDisabled(((InetSocketAddress) addr).getAddress().getHostName()))));
+        if (!(addr instanceof InetSocketAddress)) return false;
+        InetSocketAddress address = (InetSocketAddress) addr;
+        String match = getConfig().getForceDisableMatch(address.getHostString());
+        if (match == null && address.getAddress() != null) {
+            match = getConfig().getForceDisableMatch(address.getAddress().getHostAddress());
+            if (match == null) match = getConfig().getForceDisableMatch(address.getAddress().getHostName());
+        }
+        if (match == null) return false;
+        getLogger().info(address.getHostString() + " is force-disabled. (Matches " + match + ")");
+        return true;
     }
 
     private void handleMulticonnectPing(UserConnection connection, ProtocolInfo info, boolean blocked, ProtocolVersion serverVer) throws Exception {
@@ -180,27 +208,6 @@ public abstract class AbstractFabricVersionProvider extends BaseVersionProvider
         return clientSideVersion;
     }
 
-    private boolean isDisabled(String addr) {
-        String[] parts = addr.split("\\.");
-        boolean isNumericIp = parts.length == 4 && Arrays.stream(parts).map(Ints::tryParse).allMatch(Objects::nonNull);
-        return IntStream.range(0, parts.length).anyMatch(i -> {
-            String query;
-            if (isNumericIp) {
-                query = String.join(".", Arrays.stream(parts, 0, i + 1)
-                        .toArray(String[]::new)) + ((i != 3) ? ".*" : "");
-            } else {
-                query = ((i != 0) ? "*." : "") + String.join(".", Arrays.stream(parts, i, parts.length)
-                        .toArray(String[]::new));
-            }
-            if (getConfig().isForcedDisable(query)) {
-                getLogger().info(addr + " is force-disabled. (Matches " + query + ")");
-                return true;
-            } else {
-                return false;
-            }
-        });
-    }
-
     protected abstract Logger getLogger();
 
     protected abstract VFConfig getConfig();
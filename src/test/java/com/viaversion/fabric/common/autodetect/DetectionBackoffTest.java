@@ -0,0 +1,93 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import com.viaversion.fabric.common.autodetect.DetectionBackoff.Failure;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.codec.DecoderException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DetectionBackoffTest {
+    private static final InetSocketAddress SERVER = InetSocketAddress.createUnresolved("mc.example.com", 25565);
+    private static final InetSocketAddress OTHER = InetSocketAddress.createUnresolved("mc.example.com", 25566);
+
+    @Test
+    void baseBackoffDependsOnFailure() {
+        assertEquals(TimeUnit.SECONDS.toMillis(5), new DetectionBackoff().failed(SERVER, Failure.REFUSED, 0));
+        assertEquals(TimeUnit.SECONDS.toMillis(15), new DetectionBackoff().failed(SERVER, Failure.TIMEOUT, 0));
+        assertEquals(TimeUnit.MINUTES.toMillis(1), new DetectionBackoff().failed(SERVER, Failure.BAD_RESPONSE, 0));
+    }
+
+    @Test
+    void doublesUpToMaximum() {
+        DetectionBackoff backoff = new DetectionBackoff();
+        long[] expected = {5, 10, 20, 40, 80, 160, 320, 600, 600};
+        for (long seconds : expected) {
+            assertEquals(TimeUnit.SECONDS.toMillis(seconds), backoff.failed(SERVER, Failure.REFUSED, 0));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(DetectionBackoff.MAX_BACKOFF_MILLIS, backoff.failed(SERVER, Failure.TIMEOUT, 0));
+        }
+    }
+
+    @Test
+    void backsOffUntilRetry() {
+        DetectionBackoff backoff = new DetectionBackoff();
+        long now = 1_000_000;
+        long wait = backoff.failed(SERVER, Failure.TIMEOUT, now);
+        assertTrue(backoff.isBackingOff(SERVER, now));
+        assertTrue(backoff.isBackingOff(SERVER, now + wait - 1));
+        assertFalse(backoff.isBackingOff(SERVER, now + wait));
+        assertFalse(backoff.isBackingOff(OTHER, now));
+    }
+
+    @Test
+    void successResetsBackoff() {
+        DetectionBackoff backoff = new DetectionBackoff();
+        backoff.failed(SERVER, Failure.REFUSED, 0);
+        backoff.failed(SERVER, Failure.REFUSED, 0);
+        backoff.succeeded(SERVER);
+        assertFalse(backoff.isBackingOff(SERVER, 0));
+        assertEquals(TimeUnit.SECONDS.toMillis(5), backoff.failed(SERVER, Failure.REFUSED, 0));
+    }
+
+    @Test
+    void classifiesFailures() {
+        assertEquals(Failure.REFUSED, Failure.of(new ConnectException()));
+        assertEquals(Failure.REFUSED, Failure.of(new NoRouteToHostException()));
+        // Netty's connect timeout is a connect exception too
+        assertEquals(Failure.TIMEOUT, Failure.of(new ConnectTimeoutException()));
+        assertEquals(Failure.TIMEOUT, Failure.of(new SocketTimeoutException()));
+        assertEquals(Failure.BAD_RESPONSE, Failure.of(new DecoderException()));
+        assertEquals(Failure.BAD_RESPONSE, Failure.of(new IllegalArgumentException()));
+        assertEquals(Failure.TIMEOUT,
+                Failure.of(new CompletionException(new ExecutionException(new SocketTimeoutException()))));
+    }
+}
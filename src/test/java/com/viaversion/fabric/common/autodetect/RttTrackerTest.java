@@ -0,0 +1,83 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.autodetect;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RttTrackerTest {
+    private static final InetSocketAddress SERVER = InetSocketAddress.createUnresolved("mc.example.com", 25565);
+
+    @Test
+    void ceilingWithoutSamples() {
+        RttTracker rtt = new RttTracker();
+        assertEquals(RttTracker.CEILING_MILLIS, rtt.timeoutMillis(SERVER));
+        rtt.record(InetSocketAddress.createUnresolved("other.example.com", 25565), millis(20));
+        assertEquals(RttTracker.CEILING_MILLIS, rtt.timeoutMillis(SERVER));
+    }
+
+    @Test
+    void keyIgnoresHostCase() {
+        RttTracker rtt = new RttTracker();
+        rtt.record(InetSocketAddress.createUnresolved("MC.Example.com", 25565), millis(300));
+        assertEquals(300 * 2 + RttTracker.MARGIN_MILLIS, rtt.timeoutMillis(SERVER));
+    }
+
+    @Test
+    void doublesPercentilePlusMargin() {
+        RttTracker rtt = new RttTracker();
+        for (int i = 0; i < 15; i++) {
+            rtt.record(SERVER, millis(100));
+        }
+        // With 16 samples the 99th percentile is the slowest one
+        rtt.record(SERVER, millis(400));
+        assertEquals(400 * 2 + RttTracker.MARGIN_MILLIS, rtt.timeoutMillis(SERVER));
+    }
+
+    @Test
+    void clampsToFloor() {
+        RttTracker rtt = new RttTracker();
+        rtt.record(SERVER, millis(1));
+        assertEquals(RttTracker.FLOOR_MILLIS, rtt.timeoutMillis(SERVER));
+    }
+
+    @Test
+    void clampsToCeiling() {
+        RttTracker rtt = new RttTracker();
+        rtt.record(SERVER, millis(RttTracker.CEILING_MILLIS));
+        assertEquals(RttTracker.CEILING_MILLIS, rtt.timeoutMillis(SERVER));
+    }
+
+    @Test
+    void forgetsOldestSamples() {
+        RttTracker rtt = new RttTracker();
+        rtt.record(SERVER, millis(2000));
+        for (int i = 0; i < 16; i++) {
+            rtt.record(SERVER, millis(200));
+        }
+        assertEquals(200 * 2 + RttTracker.MARGIN_MILLIS, rtt.timeoutMillis(SERVER));
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
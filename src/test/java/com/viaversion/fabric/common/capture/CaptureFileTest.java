@@ -0,0 +1,130 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.capture;
+
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureFileTest {
+    private static final int CAPACITY = 2048;
+    private static final int MAX_PACKET = 600;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsNewestFramesThroughWraps() throws IOException {
+        Path path = dir.resolve("wraps.vfcap");
+        Random random = new Random(42);
+        List<byte[]> packets = new ArrayList<>();
+        try (CaptureFile file = new CaptureFile(path, CAPACITY)) {
+            for (int i = 0; i < 500; i++) {
+                // Mostly small packets with a large one now and then, so the head wraps while it's already wrapped
+                int size = random.nextInt(8) == 0 ? MAX_PACKET - random.nextInt(100) : random.nextInt(120);
+                byte[] packet = new byte[size];
+                random.nextBytes(packet);
+                packets.add(packet);
+                assertTrue(append(file, i, packet));
+
+                assertNewest(CaptureReader.read(path), packets);
+            }
+        }
+        assertNewest(CaptureReader.read(path), packets);
+    }
+
+    @Test
+    void wrapsAgainWhileWrapped() throws IOException {
+        Path path = dir.resolve("rewrap.vfcap");
+        List<byte[]> packets = new ArrayList<>();
+        // The second frame wraps and drops the first, the fourth wraps again and only has to drop the second
+        int[] sizes = {1200, 900, 100, 900};
+        try (CaptureFile file = new CaptureFile(path, CAPACITY)) {
+            for (int i = 0; i < sizes.length; i++) {
+                byte[] packet = new byte[sizes[i]];
+                Arrays.fill(packet, (byte) i);
+                packets.add(packet);
+                assertTrue(append(file, i, packet));
+
+                assertNewest(CaptureReader.read(path), packets);
+            }
+        }
+        List<CaptureReader.Frame> frames = CaptureReader.read(path);
+        assertEquals(2, frames.size());
+        assertEquals(2, frames.get(0).connectionId());
+    }
+
+    @Test
+    void rejectsFramesLargerThanFile() throws IOException {
+        Path path = dir.resolve("large.vfcap");
+        try (CaptureFile file = new CaptureFile(path, CAPACITY)) {
+            assertTrue(append(file, 0, new byte[10]));
+            assertFalse(append(file, 1, new byte[CAPACITY]));
+        }
+        List<CaptureReader.Frame> frames = CaptureReader.read(path);
+        assertEquals(1, frames.size());
+        assertEquals(0, frames.get(0).connectionId());
+    }
+
+    private static boolean append(CaptureFile file, int index, byte[] packet) {
+        return file.append(index * 1000L, index, (byte) Direction.CLIENTBOUND.ordinal(), (byte) State.PLAY.ordinal(),
+                CaptureFile.STAGE_BEFORE, CaptureFile.FLAG_CLIENT_SIDE, 47, 767, packet);
+    }
+
+    /**
+     * Checks that the frames are the newest appended packets in order, and that no more was dropped than the space
+     * two frames can leave unused, one at the end of the file and one between the head and the oldest frame.
+     */
+    private static void assertNewest(List<CaptureReader.Frame> frames, List<byte[]> packets) {
+        assertFalse(frames.isEmpty());
+        int first = packets.size() - frames.size();
+        int bytes = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            CaptureReader.Frame frame = frames.get(i);
+            assertEquals(first + i, frame.connectionId());
+            assertEquals((first + i) * 1000L, frame.timestampMicros());
+            assertEquals(Direction.CLIENTBOUND, frame.direction());
+            assertEquals(State.PLAY, frame.state());
+            assertTrue(frame.isBeforeTransform());
+            assertTrue(frame.isClientSide());
+            assertEquals(47, frame.clientVersion());
+            assertEquals(767, frame.serverVersion());
+            assertArrayEquals(packets.get(first + i), frame.packet());
+            bytes += CaptureFile.FRAME_HEADER_SIZE + frame.packet().length;
+        }
+        if (first > 0) {
+            int maxFrame = CaptureFile.FRAME_HEADER_SIZE
+                    + packets.stream().mapToInt(packet -> packet.length).max().getAsInt();
+            assertTrue(bytes + CaptureFile.FRAME_HEADER_SIZE + packets.get(first - 1).length
+                    > CAPACITY - CaptureFile.HEADER_SIZE - 2 * maxFrame);
+        }
+    }
+}
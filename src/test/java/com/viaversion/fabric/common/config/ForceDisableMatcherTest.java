@@ -0,0 +1,158 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.config;
+
+import com.google.common.primitives.Ints;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForceDisableMatcherTest {
+    private static final String[] LABELS = {"mc", "play", "example", "com", "net", "org", "hypixel", "a", "b"};
+
+    @Test
+    void matchesLikeListLookups() {
+        Random random = new Random(25);
+        for (int round = 0; round < 200; round++) {
+            List<String> entries = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                entries.add(randomEntry(random));
+            }
+            ForceDisableMatcher matcher = new ForceDisableMatcher(entries);
+            for (int i = 0; i < 50; i++) {
+                String address = randomAddress(random);
+                String match = matcher.match(address);
+                assertEquals(listMatches(entries, address), match != null, () -> address + " in " + entries);
+                if (match != null) assertTrue(entries.contains(match));
+            }
+        }
+    }
+
+    @Test
+    void matchesHostnames() {
+        ForceDisableMatcher matcher = new ForceDisableMatcher(Arrays.asList("mc.example.com", "*.example.net"));
+        assertEquals("mc.example.com", matcher.match("mc.example.com"));
+        assertNull(matcher.match("play.example.com"));
+        assertNull(matcher.match("a.mc.example.com"));
+        assertEquals("*.example.net", matcher.match("play.example.net"));
+        assertEquals("*.example.net", matcher.match("a.b.example.net"));
+        // The wildcard needs a label in its place
+        assertNull(matcher.match("example.net"));
+    }
+
+    @Test
+    void matchesIpWildcards() {
+        ForceDisableMatcher matcher = new ForceDisableMatcher(Arrays.asList("192.168.*", "10.*", "172.16.0.1"));
+        assertEquals("192.168.*", matcher.match("192.168.1.20"));
+        assertNull(matcher.match("192.169.1.20"));
+        assertEquals("10.*", matcher.match("10.255.0.1"));
+        assertEquals("172.16.0.1", matcher.match("172.16.0.1"));
+        assertNull(matcher.match("172.16.0.10"));
+    }
+
+    @Test
+    void matchesCidrRanges() {
+        ForceDisableMatcher matcher = new ForceDisableMatcher(Arrays.asList("10.0.0.0/8", "192.168.1.128/25",
+                "2001:db8::/32", "fe80::/10", "::1"));
+        assertEquals("10.0.0.0/8", matcher.match("10.1.2.3"));
+        assertNull(matcher.match("11.0.0.1"));
+        assertEquals("192.168.1.128/25", matcher.match("192.168.1.200"));
+        assertNull(matcher.match("192.168.1.127"));
+        assertEquals("2001:db8::/32", matcher.match("2001:db8:1::5"));
+        assertEquals("2001:db8::/32", matcher.match("2001:0db8:0:0:0:0:0:1"));
+        assertNull(matcher.match("2001:db9::1"));
+        assertEquals("fe80::/10", matcher.match("fe80::1%eth0"));
+        assertEquals("::1", matcher.match("::1"));
+        assertEquals("::1", matcher.match("0:0:0:0:0:0:0:1"));
+        assertNull(matcher.match("::2"));
+    }
+
+    @Test
+    void widestRangeCoversAll() {
+        ForceDisableMatcher matcher = new ForceDisableMatcher(Arrays.asList("0.0.0.0/0", "::/0"));
+        assertEquals("0.0.0.0/0", matcher.match("8.8.8.8"));
+        assertEquals("::/0", matcher.match("2606:4700::1111"));
+        assertNull(matcher.match("mc.example.com"));
+    }
+
+    @Test
+    void ignoresInvalidEntries() {
+        ForceDisableMatcher matcher = new ForceDisableMatcher(Arrays.asList("10.0.0.0/33", "1.2.3.256", 42, null));
+        assertNull(matcher.match("10.0.0.1"));
+        assertNull(matcher.match("1.2.3.0"));
+        assertNull(new ForceDisableMatcher(Collections.emptyList()).match("10.0.0.1"));
+    }
+
+    /**
+     * How the list was checked before it was compiled: every query the address could be listed as, looked up with
+     * {@link List#contains(Object)}.
+     */
+    private static boolean listMatches(List<String> entries, String address) {
+        String[] parts = address.split("\\.");
+        boolean isNumericIp = parts.length == 4 && Arrays.stream(parts).map(Ints::tryParse).allMatch(Objects::nonNull);
+        return IntStream.range(0, parts.length).anyMatch(i -> {
+            String query;
+            if (isNumericIp) {
+                query = String.join(".", Arrays.stream(parts, 0, i + 1)
+                        .toArray(String[]::new)) + ((i != 3) ? ".*" : "");
+            } else {
+                query = ((i != 0) ? "*." : "") + String.join(".", Arrays.stream(parts, i, parts.length)
+                        .toArray(String[]::new));
+            }
+            return entries.contains(query);
+        });
+    }
+
+    private static String randomEntry(Random random) {
+        if (random.nextBoolean()) {
+            String host = randomHost(random, 1 + random.nextInt(3));
+            return random.nextBoolean() ? "*." + host : host;
+        }
+        int octets = 1 + random.nextInt(4);
+        StringBuilder entry = new StringBuilder();
+        for (int i = 0; i < octets; i++) {
+            if (i != 0) entry.append('.');
+            entry.append(random.nextInt(3));
+        }
+        return octets == 4 ? entry.toString() : entry.append(".*").toString();
+    }
+
+    private static String randomAddress(Random random) {
+        if (random.nextBoolean()) return randomHost(random, 1 + random.nextInt(4));
+        return random.nextInt(3) + "." + random.nextInt(3) + "." + random.nextInt(3) + "." + random.nextInt(3);
+    }
+
+    private static String randomHost(Random random, int labels) {
+        StringBuilder host = new StringBuilder();
+        for (int i = 0; i < labels; i++) {
+            if (i != 0) host.append('.');
+            host.append(LABELS[random.nextInt(LABELS.length)]);
+        }
+        return host.toString();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.common.handler;
+
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderedTransformQueueTest {
+    @Test
+    void resultsKeepSubmissionOrder() throws Exception {
+        int count = 2000;
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        EventLoop eventLoop = new DefaultEventLoop();
+        try {
+            OrderedTransformQueue queue = new OrderedTransformQueue();
+            List<Integer> results = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(count);
+            eventLoop.submit(() -> {
+                for (int i = 0; i < count; i++) {
+                    int packet = i;
+                    queue.submit(workers, eventLoop, 1, () -> {
+                        if (ThreadLocalRandom.current().nextInt(16) == 0) Thread.sleep(1);
+                        return packet;
+                    }, result -> {
+                        results.add(result);
+                        done.countDown();
+                    }, error -> done.countDown());
+                }
+            }).sync();
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+
+            assertEquals(count, results.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, (int) results.get(i));
+            }
+            assertFalse(eventLoop.submit(queue::isBusy).get());
+        } finally {
+            workers.shutdownNow();
+            eventLoop.shutdownGracefully();
+        }
+    }
+
+    @Test
+    void errorsKeepSubmissionOrder() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        OrderedTransformQueue queue = new OrderedTransformQueue();
+        List<String> results = new ArrayList<>();
+        queue.submit(Runnable::run, channel.eventLoop(), 1, () -> "a", results::add, error -> results.add("error"));
+        queue.submit(Runnable::run, channel.eventLoop(), 1, () -> {
+            throw new IllegalStateException();
+        }, results::add, error -> results.add("error"));
+        queue.submit(Runnable::run, channel.eventLoop(), 1, () -> "b", results::add, error -> results.add("error"));
+        channel.runPendingTasks();
+
+        assertEquals(Arrays.asList("a", "error", "b"), results);
+    }
+
+    @Test
+    void pausesReadsAboveHighWaterMark() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        OrderedTransformQueue queue = new OrderedTransformQueue();
+        Queue<Runnable> workers = new ArrayDeque<>();
+        int size = OrderedTransformQueue.HIGH_WATER_MARK / 4;
+
+        for (int i = 0; i < 3; i++) {
+            queue.submit(workers::add, channel.eventLoop(), size, () -> null, result -> {
+            }, error -> {
+            });
+            queue.throttleReads(channel);
+        }
+        assertTrue(channel.config().isAutoRead());
+        queue.submit(workers::add, channel.eventLoop(), size, () -> null, result -> {
+        }, error -> {
+        });
+        queue.throttleReads(channel);
+        assertTrue(queue.isFull());
+        assertFalse(channel.config().isAutoRead());
+
+        // Runs all queued transforms, but hands back their results one at a time
+        workers.poll().run();
+        assertEquals(0, workers.size());
+        channel.runPendingTasks();
+        assertFalse(queue.isBusy());
+        assertTrue(channel.config().isAutoRead());
+    }
+
+    @Test
+    void marksUnwritableAboveHighWaterMark() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        OrderedTransformQueue queue = new OrderedTransformQueue();
+        Queue<Runnable> workers = new ArrayDeque<>();
+
+        queue.submit(workers::add, channel.eventLoop(), OrderedTransformQueue.HIGH_WATER_MARK, () -> null, result -> {
+        }, error -> {
+        });
+        queue.throttleWrites(channel);
+        assertFalse(channel.isWritable());
+        assertFalse(channel.unsafe().outboundBuffer().getUserDefinedWritability(OrderedTransformQueue.WRITABILITY_INDEX));
+
+        workers.poll().run();
+        channel.runPendingTasks();
+        assertTrue(channel.isWritable());
+    }
+}
@@ -0,0 +1,36 @@
+plugins {
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+dependencies {
+    // dummy version, the benchmarks only use the common code
+    minecraft("com.mojang:minecraft:1.14.4")
+    mappings("net.fabricmc:yarn:1.14.4+build.18:v2")
+}
+
+jmh {
+    // ./gradlew :viafabric-benchmark:jmh, compare the results of two runs with e.g. https://jmh.morethan.io
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
+
+// ./gradlew :viafabric-benchmark:loadTest -PloadArgs="--version 1.12.2 --max 200"
+tasks.register<JavaExec>("loadTest") {
+    group = "benchmark"
+    description = "Connects fake legacy clients to a local ViaFabric server"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.viaversion.fabric.benchmark.load.LoadGenerator")
+    args = (findProperty("loadArgs") as String? ?: "").split(" ").filter { it.isNotEmpty() }
+}
+
+// ./gradlew :viafabric-benchmark:replay -PreplayArgs="play-1.12.2-1.21 5 2"
+tasks.register<JavaExec>("replay") {
+    group = "benchmark"
+    description = "Replays a packet capture through the ViaFabric handlers"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.viaversion.fabric.benchmark.ReplayBenchmark")
+    args = (findProperty("replayArgs") as String? ?: "").split(" ").filter { it.isNotEmpty() }
+}
@@ -0,0 +1,317 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark;
+
+import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.fabric.common.handler.CommonTransformer;
+import com.viaversion.fabric.common.handler.FabricDecodeHandler;
+import com.viaversion.fabric.common.handler.FabricEncodeHandler;
+import com.viaversion.fabric.common.platform.FabricViaAPI;
+import com.viaversion.fabric.common.platform.FabricViaConfig;
+import com.viaversion.fabric.common.protocol.HostnameParserProtocol;
+import com.viaversion.fabric.common.util.FutureTaskId;
+import com.viaversion.viaversion.ViaManagerImpl;
+import com.viaversion.viaversion.api.Via;
+import com.viaversion.viaversion.api.ViaAPI;
+import com.viaversion.viaversion.api.command.ViaCommandSender;
+import com.viaversion.viaversion.api.configuration.ViaVersionConfig;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.platform.ViaInjector;
+import com.viaversion.viaversion.api.platform.ViaPlatform;
+import com.viaversion.viaversion.api.platform.ViaPlatformLoader;
+import com.viaversion.viaversion.api.protocol.Protocol;
+import com.viaversion.viaversion.api.protocol.ProtocolManager;
+import com.viaversion.viaversion.api.protocol.ProtocolPathEntry;
+import com.viaversion.viaversion.api.protocol.ProtocolPipeline;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import com.viaversion.viaversion.commands.ViaCommandHandler;
+import com.viaversion.viaversion.connection.UserConnectionImpl;
+import com.viaversion.viaversion.libs.gson.JsonObject;
+import com.viaversion.viaversion.protocol.ProtocolPipelineImpl;
+import io.netty.channel.embedded.EmbeddedChannel;
+import it.unimi.dsi.fastutil.objects.ObjectSortedSet;
+import it.unimi.dsi.fastutil.objects.ObjectSortedSets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads Via outside of Minecraft, with a server on the latest version and configs in a temporary folder.
+ */
+public final class BenchmarkVia {
+    public static final ProtocolVersion SERVER_VERSION = ProtocolVersion.v1_21;
+    private static final Logger LOGGER = Logger.getLogger("ViaFabric-Benchmark");
+    private static VFConfig config;
+
+    static {
+        // Keeps the info logs of Via out of the benchmark output
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    private BenchmarkVia() {
+    }
+
+    public static synchronized VFConfig init() {
+        if (config != null) return config;
+        try {
+            Path folder = Files.createTempDirectory("viafabric-benchmark");
+            folder.toFile().deleteOnExit();
+            Files.write(folder.resolve("viaversion.yml"), "checkforupdates: false\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(folder.resolve("viafabric.yml"), "detach-native-connections: false\n".getBytes(StandardCharsets.UTF_8));
+
+            Platform platform = new Platform(folder.toFile());
+            Via.init(ViaManagerImpl.builder()
+                    .injector(new Injector())
+                    .loader(new Loader())
+                    .commandHandler(new ViaCommandHandler())
+                    .platform(platform).build());
+
+            ViaManagerImpl manager = (ViaManagerImpl) Via.getManager();
+            manager.init();
+
+            HostnameParserProtocol.INSTANCE.initialize();
+            HostnameParserProtocol.INSTANCE.register(Via.getManager().getProviders());
+
+            config = new VFConfig(folder.resolve("viafabric.yml").toFile(), LOGGER);
+            manager.onServerLoaded();
+
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            while (!manager.getProtocolManager().hasLoadedMappings()) {
+                if (System.nanoTime() > deadline) throw new IllegalStateException("Via didn't load its mappings");
+                Thread.sleep(10);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return config;
+    }
+
+    public static Logger logger() {
+        return LOGGER;
+    }
+
+    /**
+     * Creates an embedded channel with the ViaFabric handlers and a Via connection translating between the versions,
+     * as it'd be after the handshake. Must be called after Via is loaded.
+     *
+     * @return null if Via can't translate between the versions
+     */
+    public static EmbeddedChannel connect(boolean clientSide, ProtocolVersion clientVersion,
+                                          ProtocolVersion serverVersion) {
+        ProtocolManager protocolManager = Via.getManager().getProtocolManager();
+        List<ProtocolPathEntry> path = protocolManager.getProtocolPath(clientVersion, serverVersion);
+        if (path == null && !clientVersion.equals(serverVersion)) return null;
+
+        EmbeddedChannel channel = new EmbeddedChannel();
+        UserConnection user = new UserConnectionImpl(channel, clientSide);
+        ProtocolPipeline pipeline = new ProtocolPipelineImpl(user);
+        ProtocolInfo info = user.getProtocolInfo();
+        info.setProtocolVersion(clientVersion);
+        info.setServerProtocolVersion(serverVersion);
+
+        List<Protocol> protocols = new ArrayList<>();
+        if (path != null) {
+            for (ProtocolPathEntry entry : path) {
+                protocols.add(entry.protocol());
+            }
+        }
+        pipeline.add(protocols);
+        Protocol baseProtocol = protocolManager.getBaseProtocol(serverVersion);
+        if (baseProtocol != null) pipeline.add(baseProtocol);
+        user.setActive(!protocols.isEmpty());
+
+        channel.pipeline().addLast(CommonTransformer.HANDLER_ENCODER_NAME, new FabricEncodeHandler(user));
+        channel.pipeline().addLast(CommonTransformer.HANDLER_DECODER_NAME, new FabricDecodeHandler(user));
+        return channel;
+    }
+
+    private static final class Platform implements ViaPlatform<UserConnection> {
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ViaFabric-Benchmark-Tasks");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final ViaAPI<UserConnection> api = new FabricViaAPI();
+        private final File dataFolder;
+        private final FabricViaConfig conf;
+
+        private Platform(File dataFolder) {
+            this.dataFolder = dataFolder;
+            this.conf = new FabricViaConfig(new File(dataFolder, "viaversion.yml"), LOGGER);
+        }
+
+        @Override
+        public Logger getLogger() {
+            return LOGGER;
+        }
+
+        @Override
+        public String getPlatformName() {
+            return "ViaFabric-Benchmark";
+        }
+
+        @Override
+        public String getPlatformVersion() {
+            return "UNKNOWN";
+        }
+
+        @Override
+        public String getPluginVersion() {
+            return "UNKNOWN";
+        }
+
+        @Override
+        public FutureTaskId runAsync(Runnable runnable) {
+            return new FutureTaskId(executor.submit(runnable));
+        }
+
+        @Override
+        public FutureTaskId runRepeatingAsync(Runnable runnable, long ticks) {
+            return new FutureTaskId(executor.scheduleAtFixedRate(runnable, 0, ticks * 50, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public FutureTaskId runSync(Runnable runnable) {
+            return runAsync(runnable);
+        }
+
+        @Override
+        public FutureTaskId runSync(Runnable runnable, long ticks) {
+            return new FutureTaskId(executor.schedule(runnable, ticks * 50, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public FutureTaskId runRepeatingSync(Runnable runnable, long ticks) {
+            return runRepeatingAsync(runnable, ticks);
+        }
+
+        @Override
+        public ViaCommandSender[] getOnlinePlayers() {
+            return new ViaCommandSender[0];
+        }
+
+        @Override
+        public void sendMessage(UUID uuid, String s) {
+        }
+
+        @Override
+        public boolean kickPlayer(UUID uuid, String s) {
+            return false;
+        }
+
+        @Override
+        public boolean isPluginEnabled() {
+            return true;
+        }
+
+        @Override
+        public ViaAPI<UserConnection> getApi() {
+            return api;
+        }
+
+        @Override
+        public ViaVersionConfig getConf() {
+            return conf;
+        }
+
+        @Override
+        public File getDataFolder() {
+            return dataFolder;
+        }
+
+        @Override
+        public void onReload() {
+        }
+
+        @Override
+        public JsonObject getDump() {
+            return new JsonObject();
+        }
+
+        @Override
+        public boolean hasPlugin(String name) {
+            return false;
+        }
+
+        @Override
+        public boolean couldBeReloading() {
+            return false;
+        }
+    }
+
+    private static final class Injector implements ViaInjector {
+        @Override
+        public void inject() {
+        }
+
+        @Override
+        public void uninject() {
+        }
+
+        @Override
+        public ProtocolVersion getServerProtocolVersion() {
+            return SERVER_VERSION;
+        }
+
+        @Override
+        public ObjectSortedSet<ProtocolVersion> getServerProtocolVersions() {
+            return ObjectSortedSets.singleton(SERVER_VERSION);
+        }
+
+        @Override
+        public String getEncoderName() {
+            return CommonTransformer.HANDLER_ENCODER_NAME;
+        }
+
+        @Override
+        public String getDecoderName() {
+            return CommonTransformer.HANDLER_DECODER_NAME;
+        }
+
+        @Override
+        public JsonObject getDump() {
+            return new JsonObject();
+        }
+    }
+
+    private static final class Loader implements ViaPlatformLoader {
+        @Override
+        public void load() {
+        }
+
+        @Override
+        public void unload() {
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark;
+
+import com.viaversion.fabric.common.config.VFConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks addresses against client-side-force-disable lists of hostnames, wildcards and IP ranges.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ForceDisableBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int size;
+    private VFConfig config;
+
+    @Setup
+    public void setup() {
+        config = BenchmarkVia.init();
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            switch (i % 3) {
+                case 0:
+                    list.add("server" + i + ".example.com");
+                    break;
+                case 1:
+                    list.add("*.network" + i + ".net");
+                    break;
+                default:
+                    list.add("10." + (i / 256 % 256) + "." + (i % 256) + ".*");
+            }
+        }
+        list.add("blocked.example.org");
+        config.set(VFConfig.CLIENT_SIDE_FORCE_DISABLE, list);
+    }
+
+    @Benchmark
+    public boolean hostnameMiss() {
+        return config.isForcedDisable("play.unlisted.org");
+    }
+
+    @Benchmark
+    public boolean hostnameHit() {
+        return config.isForcedDisable("blocked.example.org");
+    }
+
+    @Benchmark
+    public boolean ipMiss() {
+        return config.isForcedDisable("192.168.1.20");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark;
+
+import com.viaversion.fabric.common.handler.CommonTransformer;
+import com.viaversion.fabric.common.handler.FabricDecodeHandler;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep alives going through the handlers of a server side connection, either from a 1.21 client which doesn't need
+ * translation or from a 1.12.2 client which does.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HandlerBenchmark {
+    @Param({"passthrough", "transform"})
+    public String mode;
+    private EmbeddedChannel channel;
+    private byte[] serverbound;
+    private byte[] clientbound;
+
+    @Setup
+    public void setup() {
+        BenchmarkVia.init();
+        boolean transform = "transform".equals(mode);
+        ProtocolVersion clientVersion = transform ? ProtocolVersion.v1_12_2 : BenchmarkVia.SERVER_VERSION;
+        channel = BenchmarkVia.connect(false, clientVersion, BenchmarkVia.SERVER_VERSION);
+        FabricDecodeHandler decoder = (FabricDecodeHandler) channel.pipeline().get(CommonTransformer.HANDLER_DECODER_NAME);
+        ProtocolInfo info = decoder.getInfo().getProtocolInfo();
+        info.setServerState(State.PLAY);
+        info.setClientState(State.PLAY);
+
+        serverbound = keepAlive(transform ? 0x0B : 0x18);
+        clientbound = keepAlive(0x26);
+    }
+
+    private static byte[] keepAlive(int packetId) {
+        byte[] packet = new byte[9];
+        packet[0] = (byte) packetId;
+        packet[8] = 42;
+        return packet;
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int decode() {
+        channel.writeInbound(channel.alloc().buffer(serverbound.length).writeBytes(serverbound));
+        return release(channel.readInbound());
+    }
+
+    @Benchmark
+    public int encode() {
+        channel.writeOutbound(channel.alloc().buffer(clientbound.length).writeBytes(clientbound));
+        return release(channel.readOutbound());
+    }
+
+    private static int release(Object msg) {
+        int size = ((ByteBuf) msg).readableBytes();
+        ReferenceCountUtil.release(msg);
+        return size;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark;
+
+import com.viaversion.fabric.common.handler.CommonTransformer;
+import com.viaversion.fabric.common.handler.FabricDecodeHandler;
+import com.viaversion.fabric.common.handler.FabricEncodeHandler;
+import com.viaversion.fabric.common.protocol.HostnameParserProtocol;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.ProtocolPipeline;
+import com.viaversion.viaversion.connection.UserConnectionImpl;
+import com.viaversion.viaversion.protocol.ProtocolPipelineImpl;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side handshakes going through the encoder, including the hostname rewriting of {@link HostnameParserProtocol}
+ * and the protocol pipeline setup Via does on the handshake.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HostnameParserBenchmark {
+    @Param({"play.example.com", "play.example.com._v1_8.viafabric"})
+    public String address;
+    private byte[] handshake;
+    private EmbeddedChannel channel;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        BenchmarkVia.init();
+        byte[] host = address.getBytes(StandardCharsets.UTF_8);
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(0x00);
+        writeVarInt(buf, BenchmarkVia.SERVER_VERSION.getVersion());
+        writeVarInt(buf, host.length);
+        buf.writeBytes(host);
+        buf.writeShort(25565);
+        writeVarInt(buf, 1);
+        handshake = new byte[buf.readableBytes()];
+        buf.readBytes(handshake);
+        buf.release();
+    }
+
+    private static void writeVarInt(ByteBuf buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte(value);
+    }
+
+    // The handshake changes the state of the connection, so every invocation needs a new one
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        channel = new EmbeddedChannel();
+        UserConnection user = new UserConnectionImpl(channel, true);
+        ProtocolPipeline pipeline = new ProtocolPipelineImpl(user);
+        pipeline.add(HostnameParserProtocol.INSTANCE);
+        channel.pipeline().addLast(CommonTransformer.HANDLER_ENCODER_NAME, new FabricEncodeHandler(user));
+        channel.pipeline().addLast(CommonTransformer.HANDLER_DECODER_NAME, new FabricDecodeHandler(user));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int handshake() {
+        channel.writeOutbound(channel.alloc().buffer(handshake.length).writeBytes(handshake));
+        Object msg = channel.readOutbound();
+        int size = ((ByteBuf) msg).readableBytes();
+        ReferenceCountUtil.release(msg);
+        return size;
+    }
+}
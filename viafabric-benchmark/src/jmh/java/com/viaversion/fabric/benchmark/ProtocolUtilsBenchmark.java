@@ -0,0 +1,60 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark;
+
+import com.viaversion.fabric.common.util.ProtocolUtils;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtocolUtilsBenchmark {
+    @Setup
+    public void setup() {
+        BenchmarkVia.init();
+    }
+
+    @Benchmark
+    public boolean isSupportedSameVersion() {
+        return ProtocolUtils.isSupported(BenchmarkVia.SERVER_VERSION, BenchmarkVia.SERVER_VERSION);
+    }
+
+    @Benchmark
+    public boolean isSupportedOldClient() {
+        return ProtocolUtils.isSupported(BenchmarkVia.SERVER_VERSION, ProtocolVersion.v1_8);
+    }
+
+    @Benchmark
+    public String[] suggestionsEmpty() {
+        return ProtocolUtils.getProtocolSuggestions("");
+    }
+
+    @Benchmark
+    public String[] suggestionsPrefix() {
+        return ProtocolUtils.getProtocolSuggestions("1.20");
+    }
+}
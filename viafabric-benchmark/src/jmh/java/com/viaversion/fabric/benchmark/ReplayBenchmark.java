@@ -0,0 +1,270 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark;
+
+import com.viaversion.fabric.common.capture.CaptureReader;
+import com.viaversion.fabric.common.handler.AllocationProfiler;
+import com.viaversion.fabric.common.handler.CommonTransformer;
+import com.viaversion.fabric.common.handler.FabricDecodeHandler;
+import com.viaversion.fabric.common.handler.FabricEncodeHandler;
+import com.viaversion.viaversion.api.connection.ProtocolInfo;
+import com.viaversion.viaversion.api.protocol.packet.Direction;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays the untransformed packets of a capture through {@link FabricDecodeHandler} and {@link FabricEncodeHandler}
+ * on embedded channels, with one real Via connection per captured connection.
+ * <p>
+ * Handshakes aren't replayed, the protocol pipeline is built from the captured versions instead, so captures which
+ * started in the middle of a session can be replayed too. Packets which depend on state from before the capture
+ * might fail, they're counted but not measured.
+ * <p>
+ * It runs in its own JVM on the config of {@link BenchmarkVia}, so it doesn't add to the stats and metrics of a game
+ * or server and doesn't end up in their captures.
+ */
+public final class ReplayBenchmark {
+    private static final String USAGE = "Arguments: <capture file|sample name> [iterations] [warmup], samples: "
+            + "status-1.8-1.21, play-1.12.2-1.21";
+
+    private ReplayBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        List<CaptureReader.Frame> frames = load(args[0]);
+        if (frames == null) {
+            System.err.println("No capture named " + args[0] + ". " + USAGE);
+            System.exit(1);
+        }
+
+        BenchmarkVia.init();
+        System.out.println("Replaying " + frames.size() + " frames " + (warmup + iterations) + " times");
+        Result result = run(frames, warmup, iterations);
+        System.out.printf("Replayed %d packets in %.2fs: %.0f packets/s %.1fKiB/s%n",
+                result.packets(), result.seconds(), result.packetsPerSecond(), result.bytesPerSecond() / 1024);
+        double allocated = result.allocatedPerPacket();
+        System.out.printf("Latency p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus, %s%n",
+                result.percentile(50) / 1e3, result.percentile(90) / 1e3, result.percentile(99) / 1e3,
+                result.percentile(99.9) / 1e3, result.percentile(100) / 1e3,
+                allocated == -1 ? "allocations not counted" : String.format("%.0fB/packet", allocated));
+        if (result.failed() != 0 || result.skipped() != 0) {
+            System.out.println(result.failed() + " packets failed to transform, " + result.skipped()
+                    + " were skipped as their versions aren't supported");
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @return the frames of a capture file, or of a sample capture in the resources, or null if neither exists
+     */
+    private static List<CaptureReader.Frame> load(String name) throws IOException {
+        Path path = Paths.get(name);
+        if (Files.isRegularFile(path)) return CaptureReader.read(path);
+        try (InputStream in = ReplayBenchmark.class.getResourceAsStream("/captures/" + name + ".vfcap")) {
+            return in == null ? null : CaptureReader.read(in);
+        }
+    }
+
+    /**
+     * Must be called after Via is loaded.
+     *
+     * @param warmup     replays which aren't measured
+     * @param iterations replays which are measured
+     */
+    public static Result run(List<CaptureReader.Frame> frames, int warmup, int iterations) {
+        for (int i = 0; i < warmup; i++) {
+            replay(frames, new Result());
+        }
+        Result result = new Result();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            replay(frames, result);
+        }
+        result.finish(System.nanoTime() - start);
+        return result;
+    }
+
+    private static void replay(List<CaptureReader.Frame> frames, Result result) {
+        Map<Long, Replay> connections = new HashMap<>();
+        try {
+            for (CaptureReader.Frame frame : frames) {
+                if (!frame.isBeforeTransform() || frame.state() == State.HANDSHAKE) continue;
+                Replay replay = connections.computeIfAbsent(frame.connectionId(), id -> Replay.create(frame));
+                if (replay == null) {
+                    result.skipped++;
+                    continue;
+                }
+                replay.feed(frame, result);
+            }
+        } finally {
+            for (Replay replay : connections.values()) {
+                if (replay != null) replay.channel.finishAndReleaseAll();
+            }
+        }
+    }
+
+    private static final class Replay {
+        private final EmbeddedChannel channel;
+        private final ProtocolInfo info;
+
+        private Replay(EmbeddedChannel channel, ProtocolInfo info) {
+            this.channel = channel;
+            this.info = info;
+        }
+
+        /**
+         * @return null if Via can't translate between the captured versions
+         */
+        private static Replay create(CaptureReader.Frame frame) {
+            EmbeddedChannel channel = BenchmarkVia.connect(frame.isClientSide(),
+                    ProtocolVersion.getProtocol(frame.clientVersion()), ProtocolVersion.getProtocol(frame.serverVersion()));
+            if (channel == null) return null;
+            FabricDecodeHandler decoder = (FabricDecodeHandler) channel.pipeline().get(CommonTransformer.HANDLER_DECODER_NAME);
+            return new Replay(channel, decoder.getInfo().getProtocolInfo());
+        }
+
+        private void feed(CaptureReader.Frame frame, Result result) {
+            if (frame.direction() == Direction.SERVERBOUND) {
+                info.setServerState(frame.state());
+            } else {
+                info.setClientState(frame.state());
+            }
+            byte[] packet = frame.packet();
+            ByteBuf buf = channel.alloc().buffer(packet.length).writeBytes(packet);
+
+            long allocatedBefore = AllocationProfiler.currentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            try {
+                if (frame.isIncoming()) {
+                    channel.writeInbound(buf);
+                } else {
+                    channel.writeOutbound(buf);
+                }
+            } catch (Exception e) {
+                result.failed++;
+                return;
+            } finally {
+                releaseAll();
+            }
+            long nanos = System.nanoTime() - start;
+            long allocatedAfter = AllocationProfiler.currentThreadAllocatedBytes();
+            result.record(packet.length, nanos, allocatedBefore == -1 ? -1 : allocatedAfter - allocatedBefore);
+        }
+
+        private void releaseAll() {
+            Object msg;
+            while ((msg = channel.readInbound()) != null) {
+                ReferenceCountUtil.release(msg);
+            }
+            while ((msg = channel.readOutbound()) != null) {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+
+    public static class Result {
+        private final LongArrayList latencies = new LongArrayList();
+        private long[] sorted;
+        private long bytes;
+        private long allocated;
+        private boolean allocationSupported = true;
+        private long failed;
+        private long skipped;
+        private long wallNanos;
+
+        private void record(int bytes, long nanos, long allocated) {
+            latencies.add(nanos);
+            this.bytes += bytes;
+            if (allocated == -1) {
+                allocationSupported = false;
+            } else {
+                this.allocated += Math.max(0, allocated);
+            }
+        }
+
+        private void finish(long wallNanos) {
+            this.wallNanos = wallNanos;
+            sorted = latencies.toLongArray();
+            Arrays.sort(sorted);
+        }
+
+        public long packets() {
+            return sorted.length;
+        }
+
+        public long failed() {
+            return failed;
+        }
+
+        /**
+         * @return packets of connections whose versions Via can't translate between
+         */
+        public long skipped() {
+            return skipped;
+        }
+
+        public double seconds() {
+            return wallNanos / 1e9;
+        }
+
+        public double packetsPerSecond() {
+            return wallNanos == 0 ? 0 : packets() / seconds();
+        }
+
+        public double bytesPerSecond() {
+            return wallNanos == 0 ? 0 : bytes / seconds();
+        }
+
+        /**
+         * @return average bytes allocated per packet, or -1 if this JVM doesn't count them
+         */
+        public double allocatedPerPacket() {
+            if (!allocationSupported) return -1;
+            return packets() == 0 ? 0 : (double) allocated / packets();
+        }
+
+        /**
+         * @return latency of the percentile in nanoseconds
+         */
+        public long percentile(double percentile) {
+            if (sorted.length == 0) return 0;
+            int index = (int) Math.ceil(sorted.length * percentile / 100) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.viaversion.fabric.benchmark.load.MinecraftCodecs.readString;
+import static com.viaversion.fabric.benchmark.load.MinecraftCodecs.readVarInt;
+import static com.viaversion.fabric.benchmark.load.MinecraftCodecs.writeString;
+import static com.viaversion.fabric.benchmark.load.MinecraftCodecs.writeVarInt;
+
+/**
+ * An offline mode player which logs in, walks around its spawn point and chats. The time until the server broadcasts
+ * its own chat message back is recorded as the end-to-end latency.
+ */
+final class FakeClient extends SimpleChannelInboundHandler<ByteBuf> {
+    private static final String CHAT_PREFIX = "vfload-";
+    private final int id;
+    private final LegacyVersion version;
+    private final String host;
+    private final int port;
+    private final long chatIntervalMillis;
+    private final LoadGenerator.Stats stats;
+    private final Map<Integer, Long> pendingChats = new HashMap<>();
+    private ChannelHandlerContext ctx;
+    private boolean play;
+    private boolean spawned;
+    private double x;
+    private double y;
+    private double z;
+    private int ticks;
+    private int chatSequence;
+    private ScheduledFuture<?> movement;
+    private ScheduledFuture<?> chat;
+
+    FakeClient(int id, LegacyVersion version, String host, int port, long chatIntervalMillis, LoadGenerator.Stats stats) {
+        this.id = id;
+        this.version = version;
+        this.host = host;
+        this.port = port;
+        this.chatIntervalMillis = chatIntervalMillis;
+        this.stats = stats;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        ByteBuf handshake = ctx.alloc().buffer();
+        writeVarInt(handshake, 0x00);
+        writeVarInt(handshake, version.protocol);
+        writeString(handshake, host);
+        handshake.writeShort(port);
+        writeVarInt(handshake, 2);
+        ctx.write(handshake);
+
+        ByteBuf loginStart = ctx.alloc().buffer();
+        writeVarInt(loginStart, 0x00);
+        writeString(loginStart, "ViaLoad" + id);
+        ctx.writeAndFlush(loginStart);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+        int packetId = readVarInt(msg);
+        if (play) {
+            handlePlay(packetId, msg);
+        } else {
+            handleLogin(packetId, msg);
+        }
+    }
+
+    private void handleLogin(int packetId, ByteBuf msg) {
+        switch (packetId) {
+            case 0x00:
+                stats.kicked("Disconnected while logging in: " + readString(msg));
+                ctx.close();
+                break;
+            case 0x01:
+                stats.kicked("The server is in online mode, set online-mode=false");
+                ctx.close();
+                break;
+            case 0x02:
+                play = true;
+                stats.inGame.incrementAndGet();
+                break;
+            case 0x03:
+                int threshold = readVarInt(msg);
+                if (threshold >= 0) {
+                    ctx.pipeline().addAfter(MinecraftCodecs.FRAME, MinecraftCodecs.COMPRESSION,
+                            new MinecraftCodecs.CompressionCodec(threshold));
+                }
+                break;
+            default:
+                // Plugin requests aren't answered, the server moves on after a timeout
+        }
+    }
+
+    private void handlePlay(int packetId, ByteBuf msg) {
+        if (packetId == version.clientboundKeepAlive) {
+            ByteBuf response = ctx.alloc().buffer();
+            writeVarInt(response, version.serverboundKeepAlive);
+            if (version.longKeepAlive) {
+                response.writeLong(msg.readLong());
+            } else {
+                writeVarInt(response, readVarInt(msg));
+            }
+            ctx.writeAndFlush(response);
+        } else if (packetId == version.clientboundPositionLook) {
+            teleport(msg);
+        } else if (packetId == version.clientboundChat) {
+            chatReceived(readString(msg));
+        } else if (packetId == version.clientboundDisconnect) {
+            stats.kicked("Kicked: " + readString(msg));
+            ctx.close();
+        }
+    }
+
+    private void teleport(ByteBuf msg) {
+        double newX = msg.readDouble();
+        double newY = msg.readDouble();
+        double newZ = msg.readDouble();
+        float yaw = msg.readFloat();
+        float pitch = msg.readFloat();
+        byte relative = msg.readByte();
+        x = (relative & 0x01) != 0 ? x + newX : newX;
+        y = (relative & 0x02) != 0 ? y + newY : newY;
+        z = (relative & 0x04) != 0 ? z + newZ : newZ;
+        if (version.serverboundTeleportConfirm != -1) {
+            ByteBuf confirm = ctx.alloc().buffer();
+            writeVarInt(confirm, version.serverboundTeleportConfirm);
+            writeVarInt(confirm, readVarInt(msg));
+            ctx.write(confirm);
+        }
+        ByteBuf positionLook = ctx.alloc().buffer();
+        writeVarInt(positionLook, version.serverboundPositionLook);
+        positionLook.writeDouble(x).writeDouble(y).writeDouble(z).writeFloat(yaw).writeFloat(pitch).writeBoolean(true);
+        ctx.writeAndFlush(positionLook);
+
+        if (!spawned) {
+            spawned = true;
+            movement = ctx.executor().scheduleAtFixedRate(this::move, 50, 50, TimeUnit.MILLISECONDS);
+            if (chatIntervalMillis > 0) {
+                // Spread the chat messages of all clients over the interval
+                long delay = ThreadLocalRandom.current().nextLong(chatIntervalMillis);
+                chat = ctx.executor().scheduleAtFixedRate(this::chat, delay, chatIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void move() {
+        // Walks back and forth within a block, slow enough to not be moving too quickly
+        ticks++;
+        ByteBuf position = ctx.alloc().buffer();
+        writeVarInt(position, version.serverboundPosition);
+        position.writeDouble(x + Math.sin(ticks / 20.0) * 0.5).writeDouble(y).writeDouble(z).writeBoolean(true);
+        ctx.writeAndFlush(position);
+    }
+
+    private void chat() {
+        int sequence = chatSequence++;
+        pendingChats.put(sequence, System.nanoTime());
+        // Messages the server didn't echo are dropped after a while
+        Iterator<Integer> iterator = pendingChats.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() < sequence - 100) iterator.remove();
+        }
+        ByteBuf message = ctx.alloc().buffer();
+        writeVarInt(message, version.serverboundChat);
+        writeString(message, CHAT_PREFIX + id + "-" + sequence);
+        ctx.writeAndFlush(message);
+    }
+
+    private void chatReceived(String json) {
+        String prefix = CHAT_PREFIX + id + "-";
+        int index = json.indexOf(prefix);
+        if (index == -1) return;
+        int start = index + prefix.length();
+        int end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) end++;
+        if (end == start) return;
+        Long sent = pendingChats.remove(Integer.parseInt(json.substring(start, end)));
+        if (sent != null) {
+            stats.chatLatency.record(System.nanoTime() - sent);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (movement != null) movement.cancel(false);
+        if (chat != null) chat.cancel(false);
+        if (play) stats.inGame.decrementAndGet();
+        stats.disconnected.incrementAndGet();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        stats.kicked("Error: " + cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects latencies from many event loops until the next snapshot.
+ */
+final class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int size;
+
+    synchronized void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    /**
+     * @return the sorted latencies since the last snapshot
+     */
+    synchronized long[] snapshot() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        size = 0;
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    static String format(long[] sorted) {
+        if (sorted.length == 0) return "n=0";
+        return String.format("n=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms", sorted.length,
+                percentile(sorted, 50) / 1e6, percentile(sorted, 95) / 1e6, percentile(sorted, 99) / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(sorted.length * percentile / 100) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
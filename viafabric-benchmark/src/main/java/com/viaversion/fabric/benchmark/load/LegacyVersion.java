@@ -0,0 +1,65 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark.load;
+
+/**
+ * The packets of the client versions the load generator can speak, after login.
+ */
+public enum LegacyVersion {
+    V1_8("1.8", 47, false, 0x00, 0x02, 0x08, 0x40, 0x00, 0x01, 0x04, 0x06, -1),
+    V1_12_2("1.12.2", 340, true, 0x1F, 0x0F, 0x2F, 0x1A, 0x0B, 0x02, 0x0D, 0x0E, 0x00);
+
+    final String name;
+    final int protocol;
+    // Keep alive ids are VarInts before 1.12.2
+    final boolean longKeepAlive;
+    final int clientboundKeepAlive;
+    final int clientboundChat;
+    final int clientboundPositionLook;
+    final int clientboundDisconnect;
+    final int serverboundKeepAlive;
+    final int serverboundChat;
+    final int serverboundPosition;
+    final int serverboundPositionLook;
+    // -1 if the version doesn't confirm teleports
+    final int serverboundTeleportConfirm;
+
+    LegacyVersion(String name, int protocol, boolean longKeepAlive, int clientboundKeepAlive, int clientboundChat,
+                  int clientboundPositionLook, int clientboundDisconnect, int serverboundKeepAlive, int serverboundChat,
+                  int serverboundPosition, int serverboundPositionLook, int serverboundTeleportConfirm) {
+        this.name = name;
+        this.protocol = protocol;
+        this.longKeepAlive = longKeepAlive;
+        this.clientboundKeepAlive = clientboundKeepAlive;
+        this.clientboundChat = clientboundChat;
+        this.clientboundPositionLook = clientboundPositionLook;
+        this.clientboundDisconnect = clientboundDisconnect;
+        this.serverboundKeepAlive = serverboundKeepAlive;
+        this.serverboundChat = serverboundChat;
+        this.serverboundPosition = serverboundPosition;
+        this.serverboundPositionLook = serverboundPositionLook;
+        this.serverboundTeleportConfirm = serverboundTeleportConfirm;
+    }
+
+    public static LegacyVersion byName(String name) {
+        for (LegacyVersion version : values()) {
+            if (version.name.equals(name)) return version;
+        }
+        throw new IllegalArgumentException("Unsupported version " + name + ", use 1.8 or 1.12.2");
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark.load;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Connects more and more fake legacy clients to a local ViaFabric server and reports how the chat round trip, the
+ * status ping and the time the server spends translating change with the number of clients.
+ * <p>
+ * The server needs online-mode=false. For the translation time, set metrics-enabled and metrics-prometheus-port in
+ * its viafabric.yml and pass the port as --metrics-port.
+ */
+public final class LoadGenerator {
+    private static final String USAGE = "Options: --host 127.0.0.1 --port 25565 --version 1.8|1.12.2 --start 10"
+            + " --step 10 --max 100 --step-seconds 30 --chat-interval 2000 --metrics-port -1 --threads 4";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String host = options.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(options.getOrDefault("port", "25565"));
+        LegacyVersion version = LegacyVersion.byName(options.getOrDefault("version", "1.8"));
+        int start = Integer.parseInt(options.getOrDefault("start", "10"));
+        int step = Integer.parseInt(options.getOrDefault("step", "10"));
+        int max = Integer.parseInt(options.getOrDefault("max", "100"));
+        int stepSeconds = Integer.parseInt(options.getOrDefault("step-seconds", "30"));
+        long chatInterval = Long.parseLong(options.getOrDefault("chat-interval", "2000"));
+        int metricsPort = Integer.parseInt(options.getOrDefault("metrics-port", "-1"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        if (!"127.0.0.1".equals(host) && !"localhost".equals(host) && !"::1".equals(host)) {
+            throw new IllegalArgumentException("The load generator only connects to the loopback address");
+        }
+
+        EventLoopGroup group = new NioEventLoopGroup(threads);
+        try {
+            new LoadGenerator().run(group, host, port, version, start, step, max, stepSeconds, chatInterval,
+                    metricsPort != -1 ? new MetricsScraper(metricsPort) : null);
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    private void run(EventLoopGroup group, String host, int port, LegacyVersion version, int start, int step, int max,
+                     int stepSeconds, long chatInterval, MetricsScraper scraper) throws InterruptedException {
+        Stats stats = new Stats();
+        LatencyRecorder statusLatency = new LatencyRecorder();
+        ScheduledFuture<?> probes = group.scheduleAtFixedRate(() -> connect(group, host, port,
+                () -> new StatusProbe(version, host, port, statusLatency)), 1, 1, TimeUnit.SECONDS);
+
+        System.out.println("Loading " + host + ":" + port + " with " + version.name + " clients");
+        int clients = 0;
+        for (int target = Math.min(start, max); ; target = Math.min(max, target + step)) {
+            while (clients < target) {
+                int id = clients++;
+                connect(group, host, port, () -> new FakeClient(id, version, host, port, chatInterval, stats));
+                // Logging in many players at once would measure the login storm instead of the steady state
+                Thread.sleep(20);
+            }
+            // Let the new clients spawn before measuring
+            Thread.sleep(Math.min(5000, stepSeconds * 1000L / 3));
+            stats.chatLatency.snapshot();
+            statusLatency.snapshot();
+            MetricsScraper.Sample before = scraper != null ? scraper.scrape() : null;
+
+            Thread.sleep(stepSeconds * 1000L);
+
+            MetricsScraper.Sample after = scraper != null ? scraper.scrape() : null;
+            StringBuilder line = new StringBuilder(String.format("[%4d clients] %d in game, %d disconnected", target,
+                    stats.inGame.get(), stats.disconnected.get()));
+            line.append(" | chat RTT ").append(LatencyRecorder.format(stats.chatLatency.snapshot()));
+            line.append(" | status ping ").append(LatencyRecorder.format(statusLatency.snapshot()));
+            if (before != null && after != null) {
+                line.append(" | ").append(after.since(before));
+            } else if (scraper != null) {
+                line.append(" | metrics unavailable");
+            }
+            System.out.println(line);
+            String kick = stats.lastKick.getAndSet(null);
+            if (kick != null) System.out.println("  last disconnect reason: " + kick);
+
+            if (target >= max) break;
+        }
+        probes.cancel(false);
+    }
+
+    private static void connect(EventLoopGroup group, String host, int port, Supplier<ChannelHandler> handler) {
+        ChannelFuture future = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        channel.pipeline()
+                                .addLast(MinecraftCodecs.FRAME, new MinecraftCodecs.FrameCodec())
+                                .addLast(MinecraftCodecs.HANDLER, handler.get());
+                    }
+                })
+                .connect(host, port);
+        future.addListener(f -> {
+            if (!f.isSuccess()) System.err.println("Couldn't connect: " + f.cause());
+        });
+    }
+
+    static final class Stats {
+        final AtomicInteger inGame = new AtomicInteger();
+        final AtomicInteger disconnected = new AtomicInteger();
+        final LatencyRecorder chatLatency = new LatencyRecorder();
+        final AtomicReference<String> lastKick = new AtomicReference<>();
+
+        void kicked(String reason) {
+            lastKick.set(reason);
+        }
+    }
+}
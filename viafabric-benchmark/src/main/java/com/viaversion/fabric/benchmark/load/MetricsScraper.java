@@ -0,0 +1,90 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the counters the server exports when metrics-prometheus-port is set in viafabric.yml.
+ */
+final class MetricsScraper {
+    private final URL url;
+
+    MetricsScraper(int port) throws IOException {
+        this.url = new URL("http://127.0.0.1:" + port + "/metrics");
+    }
+
+    /**
+     * @return null if the server couldn't be reached
+     */
+    Sample scrape() {
+        double transformSeconds = 0;
+        double packets = 0;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(1000);
+            connection.setReadTimeout(1000);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+                    StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // Both directions are summed
+                    if (line.startsWith("viafabric_transform_seconds_total{")) {
+                        transformSeconds += value(line);
+                    } else if (line.startsWith("viafabric_packets_translated_total{")) {
+                        packets += value(line);
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+        return new Sample(System.nanoTime(), transformSeconds, packets);
+    }
+
+    private static double value(String line) {
+        return Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+    }
+
+    static final class Sample {
+        final long nanos;
+        final double transformSeconds;
+        final double packets;
+
+        private Sample(long nanos, double transformSeconds, double packets) {
+            this.nanos = nanos;
+            this.transformSeconds = transformSeconds;
+            this.packets = packets;
+        }
+
+        /**
+         * @return the share of one core spent translating and the translated packets per second since the earlier sample
+         */
+        String since(Sample earlier) {
+            double seconds = (nanos - earlier.nanos) / 1e9;
+            return String.format("transform CPU %.1f%% of a core, %.0f packets/s",
+                    (transformSeconds - earlier.transformSeconds) / seconds * 100,
+                    (packets - earlier.packets) / seconds);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageCodec;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.MessageToMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The framing, compression and primitive types of the Minecraft protocol, as much as the load generator needs.
+ */
+final class MinecraftCodecs {
+    static final String FRAME = "frame";
+    static final String COMPRESSION = "compression";
+    static final String HANDLER = "handler";
+
+    private MinecraftCodecs() {
+    }
+
+    static void writeVarInt(ByteBuf buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuf buf) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte in = buf.readByte();
+            value |= (in & 0x7F) << shift;
+            if ((in & 0x80) == 0) return value;
+        }
+        throw new DecoderException("VarInt too big");
+    }
+
+    static void writeString(ByteBuf buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(buf, bytes.length);
+        buf.writeBytes(bytes);
+    }
+
+    static String readString(ByteBuf buf) {
+        int length = readVarInt(buf);
+        String value = buf.toString(buf.readerIndex(), length, StandardCharsets.UTF_8);
+        buf.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * Prefixes packets with their VarInt length.
+     */
+    static final class FrameCodec extends ByteToMessageCodec<ByteBuf> {
+        @Override
+        protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) {
+            writeVarInt(out, msg.readableBytes());
+            out.writeBytes(msg);
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            in.markReaderIndex();
+            int length = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (!in.isReadable()) {
+                    in.resetReaderIndex();
+                    return;
+                }
+                if (shift >= 21) throw new DecoderException("Frame length too big");
+                byte b = in.readByte();
+                length |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+            }
+            if (in.readableBytes() < length) {
+                in.resetReaderIndex();
+                return;
+            }
+            out.add(in.readRetainedSlice(length));
+        }
+    }
+
+    /**
+     * Compresses packets at least as big as the threshold the server sent with zlib.
+     */
+    static final class CompressionCodec extends MessageToMessageCodec<ByteBuf, ByteBuf> {
+        private final Deflater deflater = new Deflater();
+        private final Inflater inflater = new Inflater();
+        private final byte[] chunk = new byte[8192];
+        private final int threshold;
+
+        CompressionCodec(int threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+            int size = msg.readableBytes();
+            ByteBuf buf = ctx.alloc().buffer(size + 5);
+            if (size < threshold) {
+                writeVarInt(buf, 0);
+                buf.writeBytes(msg);
+            } else {
+                writeVarInt(buf, size);
+                byte[] input = new byte[size];
+                msg.readBytes(input);
+                deflater.setInput(input);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    buf.writeBytes(chunk, 0, deflater.deflate(chunk));
+                }
+                deflater.reset();
+            }
+            out.add(buf);
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws DataFormatException {
+            int size = readVarInt(msg);
+            if (size == 0) {
+                out.add(msg.readRetainedSlice(msg.readableBytes()));
+                return;
+            }
+            byte[] input = new byte[msg.readableBytes()];
+            msg.readBytes(input);
+            inflater.setInput(input);
+            byte[] output = new byte[size];
+            inflater.inflate(output);
+            inflater.reset();
+            out.add(ctx.alloc().buffer(size).writeBytes(output));
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+            super.handlerRemoved(ctx);
+            deflater.end();
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of ViaFabric - https://github.com/ViaVersion/ViaFabric
+ * Copyright (C) 2018-2024 ViaVersion and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.viaversion.fabric.benchmark.load;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import static com.viaversion.fabric.benchmark.load.MinecraftCodecs.readVarInt;
+import static com.viaversion.fabric.benchmark.load.MinecraftCodecs.writeString;
+import static com.viaversion.fabric.benchmark.load.MinecraftCodecs.writeVarInt;
+
+/**
+ * Pings the server from a new status connection. The server answers pings on its event loop without waiting for a
+ * tick, so the round trip shows how loaded the event loops are.
+ */
+final class StatusProbe extends SimpleChannelInboundHandler<ByteBuf> {
+    private final LegacyVersion version;
+    private final String host;
+    private final int port;
+    private final LatencyRecorder latency;
+    private long sent;
+
+    StatusProbe(LegacyVersion version, String host, int port, LatencyRecorder latency) {
+        this.version = version;
+        this.host = host;
+        this.port = port;
+        this.latency = latency;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        ByteBuf handshake = ctx.alloc().buffer();
+        writeVarInt(handshake, 0x00);
+        writeVarInt(handshake, version.protocol);
+        writeString(handshake, host);
+        handshake.writeShort(port);
+        writeVarInt(handshake, 1);
+        ctx.write(handshake);
+
+        ByteBuf request = ctx.alloc().buffer();
+        writeVarInt(request, 0x00);
+        ctx.writeAndFlush(request);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+        int packetId = readVarInt(msg);
+        if (packetId == 0x00) {
+            sent = System.nanoTime();
+            ByteBuf ping = ctx.alloc().buffer();
+            writeVarInt(ping, 0x01);
+            ping.writeLong(sent);
+            ctx.writeAndFlush(ping);
+        } else if (packetId == 0x01) {
+            latency.record(System.nanoTime() - sent);
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        ctx.close();
+    }
+}
@@ -22,6 +22,7 @@ import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.builder.RequiredArgumentBuilder;
 import com.viaversion.fabric.common.config.VFConfig;
+import com.viaversion.fabric.common.metrics.ViaFabricMetrics;
 import com.viaversion.fabric.common.platform.FabricInjector;
 import com.viaversion.fabric.common.protocol.HostnameParserProtocol;
 import com.viaversion.fabric.common.util.JLoggerToLog4j;
@@ -95,6 +96,7 @@ public class ViaFabric implements ModInitializer {
 
         config = new VFConfig(FabricLoader.getInstance().getConfigDir().resolve("ViaFabric")
                 .resolve("viafabric.yml").toFile(), JLOGGER);
+        ViaFabricMetrics.start(config, JLOGGER);
 
         manager.onServerLoaded();
 
@@ -17,6 +17,7 @@
  */
 package com.viaversion.fabric.mc1152.mixin.gui.client;
 
+import com.viaversion.fabric.common.autodetect.VersionPrefetcher;
 import com.viaversion.fabric.mc1152.ViaFabric;
 import com.viaversion.fabric.mc1152.gui.ViaConfigScreen;
 import net.minecraft.client.MinecraftClient;
@@ -24,14 +25,22 @@ import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.screen.multiplayer.MultiplayerScreen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.TexturedButtonWidget;
+import net.minecraft.network.ServerAddress;
 import net.minecraft.text.Text;
 import net.minecraft.text.TranslatableText;
 import net.minecraft.util.Identifier;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
 @Mixin(MultiplayerScreen.class)
 public abstract class MixinMultiplayerScreen extends Screen {
     protected MixinMultiplayerScreen(Text title, UnsupportedOperationException e) {
@@ -51,5 +60,32 @@ public abstract class MixinMultiplayerScreen extends Screen {
                 new TranslatableText("gui.via_button").asString());
         if (ViaFabric.config.isHideButton()) enableClientSideViaVersion.visible = false;
         addButton(enableClientSideViaVersion);
+        viaFabric$prefetchVersions();
+    }
+
+    @Inject(method = "removed", at = @At("HEAD"))
+    private void onRemoved(CallbackInfo ci) {
+        VersionPrefetcher.stop(this);
+    }
+
+    @Unique
+    private void viaFabric$prefetchVersions() {
+        if (!ViaFabric.config.isClientSideEnabled() || ViaFabric.config.getClientSideVersion() != -2) return;
+        MultiplayerScreen screen = (MultiplayerScreen) (Object) this;
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < screen.getServerList().size(); i++) {
+            addresses.add(screen.getServerList().get(i).address);
+        }
+        VersionPrefetcher.start(this, addresses, MixinMultiplayerScreen::viaFabric$resolve);
+    }
+
+    @Unique
+    private static InetSocketAddress viaFabric$resolve(String address) {
+        ServerAddress serverAddress = ServerAddress.parse(address);
+        try {
+            return new InetSocketAddress(InetAddress.getByName(serverAddress.getAddress()), serverAddress.getPort());
+        } catch (UnknownHostException e) {
+            return null;
+        }
     }
 }
@@ -17,7 +17,11 @@
  */
 package com.viaversion.fabric.mc1165.commands;
 
+import com.viaversion.fabric.common.commands.subs.AllocProfileSubCommand;
+import com.viaversion.fabric.common.commands.subs.BufferStatsSubCommand;
+import com.viaversion.fabric.common.commands.subs.CaptureSubCommand;
 import com.viaversion.fabric.common.commands.subs.LeakDetectSubCommand;
+import com.viaversion.fabric.common.commands.subs.StatsSubCommand;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.suggestion.Suggestions;
@@ -31,6 +35,10 @@ public class VFCommandHandler extends ViaCommandHandler {
     {
         try {
             registerSubCommand(new LeakDetectSubCommand());
+            registerSubCommand(new BufferStatsSubCommand());
+            registerSubCommand(new StatsSubCommand());
+            registerSubCommand(new AllocProfileSubCommand());
+            registerSubCommand(new CaptureSubCommand());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -17,19 +17,13 @@
  */
 package com.viaversion.fabric.mc1165.mixin.debug.client;
 
-import com.viaversion.fabric.common.handler.CommonTransformer;
-import com.viaversion.fabric.common.handler.FabricDecodeHandler;
-import com.viaversion.viaversion.api.connection.ProtocolInfo;
-import com.viaversion.viaversion.api.connection.UserConnection;
-import io.netty.channel.ChannelHandler;
+import com.viaversion.fabric.common.gui.DebugHudText;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.hud.DebugHud;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
-import com.viaversion.viaversion.api.Via;
-import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
 
 import java.util.List;
 
@@ -37,20 +31,8 @@ import java.util.List;
 public class MixinDebugHud {
     @Inject(at = @At("RETURN"), method = "getLeftText")
     protected void getLeftText(CallbackInfoReturnable<List<String>> info) {
-        String line = "[ViaFabric] I: " + Via.getManager().getConnectionManager().getConnections().size() + " (F: "
-                + Via.getManager().getConnectionManager().getConnectedClients().size() + ")";
-        @SuppressWarnings("ConstantConditions") ChannelHandler viaDecoder = ((MixinClientConnectionAccessor) MinecraftClient.getInstance().getNetworkHandler()
-                .getConnection()).getChannel().pipeline().get(CommonTransformer.HANDLER_DECODER_NAME);
-        if (viaDecoder instanceof FabricDecodeHandler) {
-            UserConnection connection = ((FabricDecodeHandler) viaDecoder).getInfo();
-            ProtocolInfo protocol = connection.getProtocolInfo();
-            if (protocol != null) {
-                ProtocolVersion serverVer = protocol.serverProtocolVersion();
-                ProtocolVersion clientVer = protocol.protocolVersion();
-                line += " / C: " + clientVer + " S: " + serverVer + " A: " + connection.isActive();
-            }
-        }
-
-        info.getReturnValue().add(line);
+        //noinspection ConstantConditions
+        info.getReturnValue().addAll(DebugHudText.getLines(() -> ((MixinClientConnectionAccessor) MinecraftClient.getInstance()
+                .getNetworkHandler().getConnection()).getChannel()));
     }
 }
@@ -18,19 +18,25 @@
 package com.viaversion.fabric.mc1165.mixin.gui.client;
 
 
+import com.viaversion.fabric.common.autodetect.ProtocolAutoDetector;
 import com.viaversion.fabric.common.gui.ViaServerInfo;
 import com.viaversion.fabric.common.handler.FabricDecodeHandler;
 import com.viaversion.fabric.mc1165.mixin.debug.client.MixinClientConnectionAccessor;
+import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
+import io.netty.channel.Channel;
 import net.minecraft.client.network.ServerInfo;
 import net.minecraft.network.ClientConnection;
 import net.minecraft.network.listener.ClientQueryPacketListener;
 import net.minecraft.network.packet.s2c.query.QueryResponseS2CPacket;
+import net.minecraft.server.ServerMetadata;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.gen.Accessor;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.net.InetSocketAddress;
+
 @Mixin(targets = "net.minecraft.client.network.MultiplayerServerListPinger$1")
 public abstract class MixinMultiplayerServerListPingerListener implements ClientQueryPacketListener {
     @Accessor
@@ -41,11 +47,19 @@ public abstract class MixinMultiplayerServerListPingerListener implements Client
 
     @Inject(method = "onResponse", at = @At(value = "HEAD"))
     private void onResponseCaptureServerInfo(QueryResponseS2CPacket packet, CallbackInfo ci) {
-        FabricDecodeHandler decoder = ((MixinClientConnectionAccessor) this.getField_3774()).getChannel()
-                .pipeline().get(FabricDecodeHandler.class);
+        Channel channel = ((MixinClientConnectionAccessor) this.getField_3774()).getChannel();
+        FabricDecodeHandler decoder = channel.pipeline().get(FabricDecodeHandler.class);
         if (decoder != null) {
             ((ViaServerInfo) getField_3776()).viaFabric$setTranslating(decoder.getInfo().isActive());
             ((ViaServerInfo) getField_3776()).viaFabric$setServerVer(decoder.getInfo().getProtocolInfo().getServerProtocolVersion());
         }
+        if ((decoder == null || !decoder.getInfo().isActive()) && channel.remoteAddress() instanceof InetSocketAddress) {
+            ServerMetadata meta = packet.getServerMetadata();
+            if (meta != null && meta.getVersion() != null) {
+                // Not translated, so it's the version of the server itself
+                ProtocolAutoDetector.rememberVersion((InetSocketAddress) channel.remoteAddress(),
+                        ProtocolVersion.getProtocol(meta.getVersion().getProtocolVersion()));
+            }
+        }
     }
 }
\ No newline at end of file
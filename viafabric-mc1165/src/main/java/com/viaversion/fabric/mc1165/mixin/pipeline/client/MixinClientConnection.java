@@ -17,8 +17,9 @@
  */
 package com.viaversion.fabric.mc1165.mixin.pipeline.client;
 
+import com.viaversion.fabric.common.autodetect.ProtocolAutoDetector;
+import com.viaversion.fabric.common.autodetect.StatusPing;
 import com.viaversion.fabric.mc1165.ViaFabric;
-import com.viaversion.fabric.mc1165.service.ProtocolAutoDetector;
 import net.minecraft.network.ClientConnection;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -27,7 +28,6 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 @Mixin(ClientConnection.class)
@@ -36,7 +36,9 @@ public class MixinClientConnection {
     private static void onConnect(InetAddress address, int port, boolean shouldUseNativeTransport, CallbackInfoReturnable<ClientConnection> cir) {
         try {
             if (!ViaFabric.config.isClientSideEnabled()) return;
-            ProtocolAutoDetector.detectVersion(new InetSocketAddress(address, port)).get(10, TimeUnit.SECONDS);
+            StatusPing.useNativeTransport(shouldUseNativeTransport);
+            // Runs while the connection opens, the handshake waits for it in the encoder
+            ProtocolAutoDetector.detectVersion(new InetSocketAddress(address, port));
         } catch (Exception e) {
             ViaFabric.JLOGGER.log(Level.WARNING, "Could not auto-detect protocol for " + address + " " + e);
         }
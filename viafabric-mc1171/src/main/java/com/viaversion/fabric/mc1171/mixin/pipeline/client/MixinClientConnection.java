@@ -17,8 +17,9 @@
  */
 package com.viaversion.fabric.mc1171.mixin.pipeline.client;
 
+import com.viaversion.fabric.common.autodetect.ProtocolAutoDetector;
+import com.viaversion.fabric.common.autodetect.StatusPing;
 import com.viaversion.fabric.mc1171.ViaFabric;
-import com.viaversion.fabric.mc1171.service.ProtocolAutoDetector;
 import net.minecraft.network.ClientConnection;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -26,7 +27,6 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.net.InetSocketAddress;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 @Mixin(ClientConnection.class)
@@ -35,7 +35,9 @@ public class MixinClientConnection {
     private static void onConnect(InetSocketAddress address, boolean useEpoll, CallbackInfoReturnable<ClientConnection> cir) {
         try {
             if (!ViaFabric.config.isClientSideEnabled()) return;
-            ProtocolAutoDetector.detectVersion(address).get(10, TimeUnit.SECONDS);
+            StatusPing.useNativeTransport(useEpoll);
+            // Runs while the connection opens, the handshake waits for it in the encoder
+            ProtocolAutoDetector.detectVersion(address);
         } catch (Exception e) {
             ViaFabric.JLOGGER.log(Level.WARNING, "Could not auto-detect protocol for " + address + " " + e);
         }
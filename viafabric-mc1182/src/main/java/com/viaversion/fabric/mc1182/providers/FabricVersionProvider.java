@@ -17,10 +17,10 @@
  */
 package com.viaversion.fabric.mc1182.providers;
 
+import com.viaversion.fabric.common.autodetect.ProtocolAutoDetector;
 import com.viaversion.fabric.common.config.VFConfig;
 import com.viaversion.fabric.common.provider.AbstractFabricVersionProvider;
 import com.viaversion.fabric.mc1182.ViaFabric;
-import com.viaversion.fabric.mc1182.service.ProtocolAutoDetector;
 import com.viaversion.viaversion.api.protocol.version.ProtocolVersion;
 import io.netty.channel.ChannelPipeline;
 import net.minecraft.network.ClientConnection;
@@ -17,6 +17,7 @@
  */
 package com.viaversion.fabric.mc1194;
 
+import com.viaversion.fabric.common.autodetect.VersionPrefetcher;
 import com.viaversion.fabric.mc1194.gui.ViaConfigScreen;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.screen.v1.ScreenEvents;
@@ -25,9 +26,15 @@ import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.multiplayer.MultiplayerScreen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.TexturedButtonWidget;
+import net.minecraft.client.network.Address;
+import net.minecraft.client.network.AllowedAddressResolver;
+import net.minecraft.client.network.ServerAddress;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ViaFabricClient implements ClientModInitializer {
     @Override
     public void onInitializeClient() {
@@ -48,9 +55,23 @@ public class ViaFabricClient implements ClientModInitializer {
                         Text.translatable("gui.via_button"));
                 if (ViaFabric.config.isHideButton()) enableClientSideViaVersion.visible = false;
                 Screens.getButtons(screen).add(enableClientSideViaVersion);
+                prefetchVersions((MultiplayerScreen) screen);
             });
         } catch (NoClassDefFoundError ignored) {
             ViaFabric.JLOGGER.info("Couldn't register screen handler as Fabric Screen isn't installed");
         }
     }
+
+    private void prefetchVersions(MultiplayerScreen screen) {
+        if (!ViaFabric.config.isClientSideEnabled() || ViaFabric.config.getClientSideVersion() != -2) return;
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < screen.getServerList().size(); i++) {
+            addresses.add(screen.getServerList().get(i).address);
+        }
+        VersionPrefetcher.start(screen, addresses, address -> AllowedAddressResolver.DEFAULT
+                .resolve(ServerAddress.parse(address))
+                .map(Address::getInetSocketAddress)
+                .orElse(null));
+        ScreenEvents.remove(screen).register(VersionPrefetcher::stop);
+    }
 }